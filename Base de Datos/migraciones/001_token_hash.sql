@@ -0,0 +1,22 @@
+-- Reemplaza el JWT completo de la tabla token por su digest SHA-256 (32 bytes).
+-- El índice único pasa de indexar cadenas de cientos de bytes a un valor de ancho fijo.
+-- Requiere PostgreSQL 11 o superior (función sha256).
+
+BEGIN;
+
+ALTER TABLE public.token ADD COLUMN token_hash bytea;
+
+UPDATE public.token
+SET token_hash = sha256(convert_to(token, 'UTF8'))
+WHERE token IS NOT NULL;
+
+-- Filas sin token no pueden validarse nunca
+DELETE FROM public.token WHERE token_hash IS NULL;
+
+ALTER TABLE public.token ALTER COLUMN token_hash SET NOT NULL;
+ALTER TABLE public.token ADD CONSTRAINT uk_token_token_hash UNIQUE (token_hash);
+
+ALTER TABLE public.token DROP CONSTRAINT IF EXISTS ukpddrhgwxnms2aceeku9s2ewy5;
+ALTER TABLE public.token DROP COLUMN token;
+
+COMMIT;
@@ -0,0 +1,3 @@
+-- Versión de sesión por usuario: incrementarla revoca todos sus JWT a la vez.
+
+ALTER TABLE public.users ADD COLUMN IF NOT EXISTS session_version integer DEFAULT 0 NOT NULL;
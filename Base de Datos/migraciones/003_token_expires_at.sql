@@ -0,0 +1,5 @@
+-- Fecha de expiración del JWT para la purga periódica de tokens.
+-- Las filas existentes quedan con NULL y se eliminan en la primera purga.
+
+ALTER TABLE public.token ADD COLUMN IF NOT EXISTS expires_at timestamp(6) with time zone;
+CREATE INDEX IF NOT EXISTS idx_token_expires_at ON public.token (expires_at);
@@ -0,0 +1,18 @@
+-- Bandeja de salida de correos, escrita en la misma transacción que la operación
+-- y enviada en segundo plano por EmailSenderService.
+
+CREATE TABLE IF NOT EXISTS public.email_outbox (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    to_email character varying(255) NOT NULL,
+    subject character varying(255) NOT NULL,
+    html text NOT NULL,
+    status character varying(255) NOT NULL,
+    attempts integer NOT NULL,
+    next_attempt_at timestamp(6) with time zone NOT NULL,
+    created_at timestamp(6) with time zone NOT NULL,
+    sent_at timestamp(6) with time zone,
+    last_error character varying(1000),
+    CONSTRAINT email_outbox_status_check CHECK (status IN ('PENDING', 'SENT', 'FAILED'))
+);
+
+CREATE INDEX IF NOT EXISTS idx_email_outbox_status_next_attempt ON public.email_outbox (status, next_attempt_at);
@@ -0,0 +1,3 @@
+-- Los códigos 2FA ya no se guardan en la tabla users (ver TwoFactorCodeStore).
+
+ALTER TABLE public.users DROP COLUMN IF EXISTS two_factor_code;
@@ -0,0 +1,14 @@
+-- Tokens de recuperación de contraseña en su propia tabla, indexados por su digest SHA-256,
+-- con expiración y de un solo uso. Los enlaces pendientes en users.reset_token dejan de ser válidos.
+
+CREATE TABLE IF NOT EXISTS public.password_reset_token (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    token_hash bytea NOT NULL,
+    expires_at timestamp(6) with time zone NOT NULL,
+    user_id bigint NOT NULL REFERENCES public.users(id) ON DELETE CASCADE,
+    CONSTRAINT uk_password_reset_token_token_hash UNIQUE (token_hash)
+);
+
+CREATE INDEX IF NOT EXISTS idx_password_reset_token_expires_at ON public.password_reset_token (expires_at);
+
+ALTER TABLE public.users DROP COLUMN IF EXISTS reset_token;
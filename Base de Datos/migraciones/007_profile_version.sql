@@ -0,0 +1,4 @@
+-- Versión del perfil por usuario: se incrementa cuando cambian los datos que devuelve la sesión,
+-- para saber si la identidad que viaja en el JWT sigue vigente.
+
+ALTER TABLE public.users ADD COLUMN IF NOT EXISTS profile_version integer DEFAULT 0 NOT NULL;
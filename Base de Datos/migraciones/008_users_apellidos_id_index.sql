@@ -0,0 +1,4 @@
+-- Índice para recorrer la lista de usuarios por cursor ordenada por apellidos (con el id como desempate).
+-- El orden por id usa la clave primaria.
+
+CREATE INDEX IF NOT EXISTS idx_users_apellidos_id ON public.users (apellidos, id);
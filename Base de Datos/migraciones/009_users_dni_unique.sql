@@ -0,0 +1,6 @@
+-- Índice único sobre el DNI: confirma las verificaciones de unicidad que el filtro en memoria no descarta
+-- y rechaza los duplicados que lleguen en registros concurrentes.
+-- Si ya existen DNIs repetidos, la creación falla: se pueden listar con
+-- SELECT dni, COUNT(*) FROM public.users GROUP BY dni HAVING COUNT(*) > 1;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_users_dni ON public.users (dni);
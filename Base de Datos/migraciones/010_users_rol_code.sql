@@ -0,0 +1,23 @@
+-- El rol se guarda como un código compacto (smallint) en lugar del nombre. Los códigos son los de la
+-- enumeración Rol: 1 ADMINISTRADOR, 2 SUPERVISOR, 3 EGRESADO.
+-- Si algún usuario tiene un rol desconocido, rol_code queda nulo y el SET NOT NULL falla sin borrar la columna rol.
+
+DO $$
+BEGIN
+    IF EXISTS (
+        SELECT 1 FROM information_schema.columns
+        WHERE table_schema = 'public' AND table_name = 'users' AND column_name = 'rol'
+    ) THEN
+        ALTER TABLE public.users ADD COLUMN IF NOT EXISTS rol_code smallint;
+        UPDATE public.users SET rol_code = CASE rol
+            WHEN 'ADMINISTRADOR' THEN 1
+            WHEN 'SUPERVISOR' THEN 2
+            WHEN 'EGRESADO' THEN 3
+        END;
+        ALTER TABLE public.users ALTER COLUMN rol_code SET NOT NULL;
+        ALTER TABLE public.users DROP COLUMN rol;
+    END IF;
+END $$;
+
+-- Conteos por rol y estado (reconciliación de contadores) y filtros de las operaciones masivas
+CREATE INDEX IF NOT EXISTS idx_users_rol_code_estado ON public.users (rol_code, estado);
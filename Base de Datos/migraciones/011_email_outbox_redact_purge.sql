@@ -0,0 +1,10 @@
+-- El cuerpo de los correos (enlaces de recuperación, códigos 2FA) solo se conserva mientras está pendiente:
+-- se borra al enviarse o fallar, y las filas terminadas se eliminan tras la retención (EmailOutboxService).
+
+ALTER TABLE public.email_outbox ALTER COLUMN html DROP NOT NULL;
+
+UPDATE public.email_outbox SET html = NULL WHERE status IN ('SENT', 'FAILED') AND html IS NOT NULL;
+
+-- Purga por lotes de las filas terminadas más antiguas que la retención
+CREATE INDEX IF NOT EXISTS idx_email_outbox_finished_created_at
+    ON public.email_outbox (created_at) WHERE status IN ('SENT', 'FAILED');
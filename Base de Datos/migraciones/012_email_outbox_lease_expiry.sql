@@ -0,0 +1,12 @@
+-- Los correos se reservan (SENDING) en una transacción corta y se envían fuera de ella;
+-- los de vigencia limitada vencen (EXPIRED) en lugar de reintentarse indefinidamente.
+
+ALTER TABLE public.email_outbox ADD COLUMN IF NOT EXISTS expires_at timestamp(6) with time zone;
+
+ALTER TABLE public.email_outbox DROP CONSTRAINT IF EXISTS email_outbox_status_check;
+ALTER TABLE public.email_outbox ADD CONSTRAINT email_outbox_status_check
+    CHECK (status IN ('PENDING', 'SENDING', 'SENT', 'FAILED', 'EXPIRED'));
+
+DROP INDEX IF EXISTS public.idx_email_outbox_finished_created_at;
+CREATE INDEX IF NOT EXISTS idx_email_outbox_finished_created_at
+    ON public.email_outbox (created_at) WHERE status IN ('SENT', 'FAILED', 'EXPIRED');
@@ -0,0 +1,5 @@
+-- La purga de tokens borra por separado los revocados y los expirados (TokenPurgeService).
+-- Los expirados (expires_at anterior a la retención o NULL) usan idx_token_expires_at;
+-- los revocados usan este índice parcial, que solo contiene esas filas.
+
+CREATE INDEX IF NOT EXISTS idx_token_revoked ON public.token (id) WHERE is_revoked;
@@ -0,0 +1,4 @@
+-- Las revocaciones por usuario (TokenRepository.revokeAllByUserId / revokeAllByUserIds), las operaciones
+-- masivas de UserBulkService y la verificación de la clave foránea al eliminar usuarios filtran token por user_id.
+
+CREATE INDEX IF NOT EXISTS idx_token_user_id ON public.token (user_id);
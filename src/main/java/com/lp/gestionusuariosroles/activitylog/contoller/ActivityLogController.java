@@ -3,12 +3,14 @@ package com.lp.gestionusuariosroles.activitylog.contoller;
 import com.lp.gestionusuariosroles.activitylog.service.ActivityLogService;
 import com.lp.gestionusuariosroles.activitylog.service.GenerateLogsExcelService;
 import com.lp.gestionusuariosroles.activitylog.service.GenerateLogsPdfService;
+import com.lp.gestionusuariosroles.config.AllowedRoles;
+import com.lp.gestionusuariosroles.config.ExportLimiter;
+import com.lp.gestionusuariosroles.user.repository.Rol;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -19,8 +21,9 @@ public class ActivityLogController {
     private final ActivityLogService service;
     private final GenerateLogsPdfService pdfService;
     private final GenerateLogsExcelService excelService;
+    private final ExportLimiter exportLimiter;
 
-    @PreAuthorize("hasAnyAuthority('ADMINISTRADOR', 'SUPERVISOR')")
+    @AllowedRoles({Rol.ADMINISTRADOR, Rol.SUPERVISOR})
     @GetMapping
     public ResponseEntity<ActivityLogDto> getAllLogs(
             @RequestParam(defaultValue = "0") int page,
@@ -29,10 +32,10 @@ public class ActivityLogController {
         return ResponseEntity.ok(service.getAllLogs(page, size));
     }
 
-    @PreAuthorize("hasAnyAuthority('ADMINISTRADOR', 'SUPERVISOR')")
+    @AllowedRoles({Rol.ADMINISTRADOR, Rol.SUPERVISOR})
     @GetMapping("/export/pdf")
     public ResponseEntity<byte[]> exportPdf(){
-        byte[] pdfBytes = pdfService.generateLogsPdf();
+        byte[] pdfBytes = exportLimiter.run(pdfService::generateLogsPdf);
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_PDF);
@@ -40,10 +43,10 @@ public class ActivityLogController {
         return new ResponseEntity<>(pdfBytes, headers, HttpStatus.OK);
     }
 
-    @PreAuthorize("hasAnyAuthority('ADMINISTRADOR', 'SUPERVISOR')")
+    @AllowedRoles({Rol.ADMINISTRADOR, Rol.SUPERVISOR})
     @GetMapping("/export/excel")
     public ResponseEntity<byte[]> exportUsersExcel() {
-        byte[] excelBytes = excelService.generateLogsExcel();
+        byte[] excelBytes = exportLimiter.run(excelService::generateLogsExcel);
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
@@ -2,7 +2,7 @@ package com.lp.gestionusuariosroles.activitylog.contoller;
 
 import com.lp.gestionusuariosroles.activitylog.service.ActivityLogService;
 import com.lp.gestionusuariosroles.activitylog.service.LogActivity;
-import com.lp.gestionusuariosroles.user.controller.UserDataResponse;
+import com.lp.gestionusuariosroles.auth.service.SessionClaims;
 import com.lp.gestionusuariosroles.user.service.UserService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -16,6 +16,9 @@ import org.springframework.web.servlet.HandlerInterceptor;
 @RequiredArgsConstructor
 public class ActivityLogInterceptor implements HandlerInterceptor {
 
+    // Atributo de la solicitud con un detalle que se agrega a la descripción (por ejemplo, cuántos usuarios afectó)
+    public static final String DETAIL_ATTRIBUTE = ActivityLogInterceptor.class.getName() + ".detail";
+
     private final ActivityLogService service;
     private final UserService userService;
 
@@ -29,13 +32,15 @@ public class ActivityLogInterceptor implements HandlerInterceptor {
             LogActivity annotation = handlerMethod.getMethodAnnotation(LogActivity.class);
 
             if (annotation != null) {
-                UserDataResponse userInSession = userService.getUserInSessionData(request);
+                // Identidad tomada de los claims del JWT, sin consultar la Base de Datos si sigue vigente
+                SessionClaims userInSession = userService.getSessionIdentity(request);
                 if (userInSession != null) {
+                    Object detail = request.getAttribute(DETAIL_ATTRIBUTE);
                     service.logActivity(
-                            userInSession.id(),
-                            userInSession.nombres() + " " + userInSession.apellidos(),
+                            userInSession.userId(),
+                            userInSession.displayName(),
                             annotation.action(),
-                            annotation.description()
+                            detail == null ? annotation.description() : annotation.description() + " (" + detail + ")"
                     );
                 }
             }
@@ -3,14 +3,13 @@ package com.lp.gestionusuariosroles.auth.controller;
 import com.lp.gestionusuariosroles.activitylog.service.LogActivity;
 import com.lp.gestionusuariosroles.auth.service.AuthService;
 import com.lp.gestionusuariosroles.auth.service.ResendService;
+import com.lp.gestionusuariosroles.config.AllowedRoles;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.io.IOException;
-
 @RestController
 @RequestMapping("/auth")
 @RequiredArgsConstructor
@@ -20,13 +19,13 @@ public class AuthController {
     private final ResendService resendService;
 
     @PostMapping("/login")
-    public ResponseEntity<AuthResponse> authenticateV2(@RequestBody AuthRequest request, HttpServletResponse response) throws IOException {
-        return ResponseEntity.ok(service.initiateAuthentication(request, response));
+    public ResponseEntity<AuthResponse> authenticateV2(@RequestBody AuthRequest request, HttpServletRequest servletRequest, HttpServletResponse response) {
+        return ResponseEntity.ok(service.initiateAuthentication(request, servletRequest, response));
     }
 
     @PostMapping("/login/2fa/verify")
-    public ResponseEntity<Void> verify2faAndAuthenticate(@RequestParam String email, @RequestParam String code, HttpServletResponse response) {
-        service.verify2faAndAuthenticate(email, code, response);
+    public ResponseEntity<Void> verify2faAndAuthenticate(@RequestParam String email, @RequestParam String code, HttpServletRequest servletRequest, HttpServletResponse response) {
+        service.verify2faAndAuthenticate(email, code, servletRequest, response);
         return ResponseEntity.noContent().build();
     }
 
@@ -47,7 +46,7 @@ public class AuthController {
         return ResponseEntity.ok(resendService.resetPassword(token, request));
     }
 
-    @PreAuthorize("isAuthenticated()")
+    @AllowedRoles
     @PatchMapping("/user/2fa/change/{id}")
     public ResponseEntity<String> change2fa(@PathVariable Long id){
         return ResponseEntity.ok(service.change2fa(id));
@@ -0,0 +1,32 @@
+package com.lp.gestionusuariosroles.auth.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface PasswordResetTokenRepository extends JpaRepository<PasswordResetToken, Long> {
+
+    @Query("select t from PasswordResetToken t join fetch t.user where t.tokenHash = :tokenHash and t.expiresAt > :now")
+    Optional<PasswordResetToken> findValidByTokenHash(byte[] tokenHash, Instant now);
+
+    // Devuelve 0 si el token ya fue usado por otra solicitud
+    @Transactional
+    @Modifying
+    @Query("delete from PasswordResetToken t where t.id = :id")
+    int consume(Long id);
+
+    @Transactional
+    @Modifying
+    @Query("delete from PasswordResetToken t where t.user.id = :userId")
+    int deleteAllByUserId(Long userId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from PasswordResetToken t where t.expiresAt < :now")
+    int deleteExpired(Instant now);
+
+}
@@ -7,19 +7,26 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.Instant;
+
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_token_expires_at", columnList = "expires_at"),
+        @Index(name = "idx_token_user_id", columnList = "user_id")
+})
 public class Token {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(unique = true, columnDefinition = "TEXT")
-    private String token;
+    // Digest SHA-256 del JWT (ver TokenDigest), nunca el token en texto plano
+    @Column(name = "token_hash", unique = true, nullable = false, length = 32)
+    private byte[] tokenHash;
 
     @Enumerated(EnumType.STRING)
     @Builder.Default
@@ -31,6 +38,10 @@ public class Token {
     @Column(nullable = false)
     private Boolean isExpired;
 
+    // Fecha de expiración tomada del claim "exp" del JWT, usada para purgar tokens antiguos
+    @Column(name = "expires_at")
+    private Instant expiresAt;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
@@ -1,18 +1,55 @@
 package com.lp.gestionusuariosroles.auth.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.Optional;
 
 public interface TokenRepository extends JpaRepository<Token, Long> {
-    @Query(value = """
-      select t from Token t inner join User u\s
-      on t.user.id = u.id\s
-      where u.id = :id and (t.isExpired = false or t.isRevoked = false)\s
+    Optional<Token> findByTokenHash(byte[] tokenHash);
+
+    @Transactional
+    @Modifying
+    @Query("""
+      update Token t set t.isExpired = true, t.isRevoked = true\s
+      where t.user.id = :userId and (t.isExpired = false or t.isRevoked = false)\s
+      """)
+    int revokeAllByUserId(Long userId);
+
+    @Transactional
+    @Modifying
+    @Query("""
+      update Token t set t.isExpired = true, t.isRevoked = true\s
+      where t.user.id in :userIds and (t.isExpired = false or t.isRevoked = false)\s
       """)
-    List<Token> findAllValidTokenByUser(Long id);
+    int revokeAllByUserIds(Collection<Long> userIds);
 
-    Optional<Token> findByToken(String token);
+    @Transactional
+    @Modifying
+    @Query("update Token t set t.isExpired = true, t.isRevoked = true where t.tokenHash = :tokenHash")
+    int revokeByTokenHash(byte[] tokenHash);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+      delete from token where id in (\s
+        select id from token where is_revoked limit :batchSize\s
+      )
+      """, nativeQuery = true)
+    int deleteRevokedBatch(int batchSize);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+      delete from token where id in (\s
+        select id from token\s
+        where expires_at is null or expires_at < :cutoff\s
+        limit :batchSize\s
+      )
+      """, nativeQuery = true)
+    int deleteExpiredBatch(Instant cutoff, int batchSize);
 }
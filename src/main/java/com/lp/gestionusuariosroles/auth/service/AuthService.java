@@ -5,23 +5,29 @@ import com.lp.gestionusuariosroles.auth.controller.AuthResponse;
 import com.lp.gestionusuariosroles.auth.controller.RegisterRequest;
 import com.lp.gestionusuariosroles.auth.repository.Token;
 import com.lp.gestionusuariosroles.auth.repository.TokenRepository;
+import com.lp.gestionusuariosroles.config.CachingUserDetailsService;
+import com.lp.gestionusuariosroles.config.SessionCookie;
 import com.lp.gestionusuariosroles.user.repository.User;
 import com.lp.gestionusuariosroles.user.repository.UserRepository;
+import com.lp.gestionusuariosroles.user.service.UserCounters;
+import com.lp.gestionusuariosroles.user.service.UserSearchIndex;
+import com.lp.gestionusuariosroles.user.service.UserUniquenessFilter;
+import com.lp.gestionusuariosroles.validation.InputValidator;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.IOException;
-import java.security.SecureRandom;
-import java.time.LocalDate;
+import java.time.Instant;
 import java.util.List;
 
 @Service
@@ -34,6 +40,13 @@ public class AuthService {
     private final AuthenticationManager authenticationManager;
     private final PasswordEncoder passwordEncoder;
     private final ResendService resendService;
+    private final CachingUserDetailsService userDetailsService;
+    private final LoginAttemptLimiter loginAttemptLimiter;
+    private final TwoFactorCodeStore twoFactorCodeStore;
+    private final InputValidator inputValidator;
+    private final UserSearchIndex searchIndex;
+    private final UserCounters userCounters;
+    private final UserUniquenessFilter uniquenessFilter;
 
     @Value("${application.security.jwt.expiration}")
     private long jwtExpiration;
@@ -45,40 +58,41 @@ public class AuthService {
      * Si el usuario no tiene 2FA activado, lo autenticará.
      *
      * @param request Datos necesarios para realizar la autenticación
+     * @param servletRequest Solicitud HTTP, de donde se obtiene la IP del cliente para limitar los intentos
      * @param response El servidor enviará una cookie con el JWT
      * @return Un mensaje por si el usuario necesita pasar la autenticación en dos pasos primero o no
-     * @throws IOException Por si algo sale mal durante la operación
      */
     @Transactional
-    public AuthResponse initiateAuthentication(AuthRequest request, HttpServletResponse response) throws IOException {
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(request.email(), request.password())
-        );
+    public AuthResponse initiateAuthentication(AuthRequest request, HttpServletRequest servletRequest, HttpServletResponse response) {
+        // Se limita antes de cualquier hashing o consulta a la Base de Datos
+        loginAttemptLimiter.checkAllowed(request.email(), servletRequest.getRemoteAddr());
+        try {
+            authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(request.email(), request.password())
+            );
+        } catch (AuthenticationException e) {
+            loginAttemptLimiter.recordFailure(request.email());
+            throw e;
+        }
+        loginAttemptLimiter.recordSuccess(request.email());
 
         User user = repository.findByEmail(request.email())
                 .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado"));
 
         if (user.getIs2faEnabled()){
-            String verificationCode = generateSecureRandomCode();
-            user.setTwoFactorCode(verificationCode);
-            repository.save(user);
-            resendService.sendTwoFactorCodeEmail(user.getEmail(), user.getTwoFactorCode());
+            String verificationCode = twoFactorCodeStore.issue(user.getEmail());
+            resendService.sendTwoFactorCodeEmail(user.getEmail(), verificationCode);
             return new AuthResponse(true, "Se requiere verificación 2FA, Un correo con el " +
                     "código de verificación ha sido enviado a su correo.");
         }
 
-        final String token = jwtService.generateToken(user);
-
         revokeAllUserTokens(user);
-        saveUserToken(user, token);
 
-        var cookie = new jakarta.servlet.http.Cookie("USER_SESSION", token);
-        cookie.setHttpOnly(true);
-        cookie.setSecure(false);
-        cookie.setPath("/");
-        cookie.setMaxAge((int) (jwtExpiration)/1000);
+        final Instant expiresAt = jwtService.expirationFromNow();
+        final String token = jwtService.generateToken(user, expiresAt);
+        saveUserToken(user, token, expiresAt);
 
-        response.addCookie(cookie);
+        SessionCookie.add(response, token, (int) (jwtExpiration)/1000);
 
         return new AuthResponse(false, "");
     }
@@ -88,32 +102,29 @@ public class AuthService {
      *
      * @param email Email del usuario a autenticar
      * @param code Código de 6 dígitos para verificar la autenticación en dos pasos
+     * @param servletRequest Solicitud HTTP, de donde se obtiene la IP del cliente para limitar los intentos
      * @param response El servidor enviará una cookie con el JWT
      */
     @Transactional
-    public void verify2faAndAuthenticate(String email, String code, HttpServletResponse response) {
-        User user = repository.findByEmail(email)
-                .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado"));
+    public void verify2faAndAuthenticate(String email, String code, HttpServletRequest servletRequest, HttpServletResponse response) {
+        loginAttemptLimiter.checkAllowed(email, servletRequest.getRemoteAddr());
 
-        if(!user.getTwoFactorCode().equals(code)){
+        if(!twoFactorCodeStore.verify(email, code)){
+            loginAttemptLimiter.recordFailure(email);
             throw new BadCredentialsException("Código 2FA inválido");
         }
+        loginAttemptLimiter.recordSuccess(email);
 
-        final String token = jwtService.generateToken(user);
+        User user = repository.findByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado"));
 
         revokeAllUserTokens(user);
-        saveUserToken(user, token);
-
-        user.setTwoFactorCode(null);
-        repository.save(user);
 
-        var cookie = new jakarta.servlet.http.Cookie("USER_SESSION", token);
-        cookie.setHttpOnly(true);
-        cookie.setSecure(false);
-        cookie.setPath("/");
-        cookie.setMaxAge((int) (jwtExpiration)/1000);
+        final Instant expiresAt = jwtService.expirationFromNow();
+        final String token = jwtService.generateToken(user, expiresAt);
+        saveUserToken(user, token, expiresAt);
 
-        response.addCookie(cookie);
+        SessionCookie.add(response, token, (int) (jwtExpiration)/1000);
     }
 
     /**
@@ -124,33 +135,18 @@ public class AuthService {
     @Transactional
     public void register(RegisterRequest request){
 
-        // Validaciones
-        if (request == null) {
-            throw new IllegalArgumentException("La solicitud de registro no puede ser nula");
-        }
-        if (request.email() == null || request.email().isBlank()) {
-            throw new IllegalArgumentException("El email es obligatorio");
-        }
-        if (!request.email().matches("^[\\w-.]+@([\\w-]+\\.)+[\\w-]{2,4}$")) {
-            throw new IllegalArgumentException("Formato de email inválido");
-        }
-        if(repository.findByEmail(request.email()).isPresent()){
+        // Validaciones de formato (sin consultar la Base de Datos)
+        inputValidator.validate(request);
+
+        // Los valores claramente nuevos se descartan en memoria; el resto se confirma con la Base de Datos
+        if(uniquenessFilter.emailExists(request.email())){
             throw new IllegalArgumentException("El email ya existe");
         }
-        if (!request.password().matches("^(?=.*[0-9])(?=.*[a-z])(?=.*[A-Z])(?=.*[@#$%^&+=])(?=\\S+$).{8,}$")) {
-            throw new IllegalArgumentException("La contraseña debe tener al menos 8 caracteres, una mayúscula, un número y un carácter especial");
-        }
-        if (request.telefono().length() != 9){
-            throw new IllegalArgumentException("El telefono debe tener 9 dígitos");
-        }
-        if (request.dni().length() != 8){
-            throw new IllegalArgumentException("El dni debe tener 8 dígitos");
-        }
-        if (request.fechaNacimiento() != null && request.fechaNacimiento().isAfter(LocalDate.now())) {
-            throw new IllegalArgumentException("La fecha de nacimiento no puede ser futura");
+        if(uniquenessFilter.dniExists(request.dni())){
+            throw new IllegalArgumentException("El dni ya está registrado con otro usuario");
         }
 
-        repository.save(
+        User user = repository.save(
             User.builder()
                     .nombres(request.nombres())
                     .apellidos(request.apellidos())
@@ -163,6 +159,9 @@ public class AuthService {
                     .estado(true)
                     .build()
         );
+        uniquenessFilter.add(user.getEmail(), user.getDni());
+        searchIndex.upsert(user);
+        userCounters.created(user.getRol(), user.getEstado());
     }
 
     /**
@@ -170,32 +169,29 @@ public class AuthService {
     *
     * @param user Objeto {@link com.lp.gestionusuariosroles.user.repository.User} (solo almacena el ID del usuario)
     * @param jwtToken El JWT generado del usuario
+    * @param expiresAt Expiración con la que se generó el JWT
     */
-    private void saveUserToken(User user, String jwtToken){
+    private void saveUserToken(User user, String jwtToken, Instant expiresAt){
         final Token token = Token.builder()
                 .user(user)
-                .token(jwtToken)
+                .tokenHash(TokenDigest.of(jwtToken))
                 .tokenType(Token.TokenType.BEARER)
                 .isExpired(false)
                 .isRevoked(false)
+                .expiresAt(expiresAt)
                 .build();
         tokenRepository.save(token);
     }
 
     /**
-    * Invalida todos los token de un usuario
+    * Invalida todos los token de un usuario incrementando su versión de sesión.
+    * Los JWT emitidos con una versión anterior son rechazados por el filtro, sin tocar la tabla token
     *
     * @param user Objeto {@link com.lp.gestionusuariosroles.user.repository.User} del usuario a invalidar sus tokens
     * */
     private void revokeAllUserTokens(final User user){
-        final List<Token> validUserTokens = tokenRepository.findAllValidTokenByUser(user.getId());
-        if(!validUserTokens.isEmpty()){
-            validUserTokens.forEach(token -> {
-                token.setIsRevoked(true);
-                token.setIsExpired(true);
-            });
-            tokenRepository.saveAll(validUserTokens);
-        }
+        user.setSessionVersion(user.getSessionVersion() + 1);
+        userDetailsService.evict(user.getEmail());
     }
 
     /**
@@ -209,16 +205,24 @@ public class AuthService {
         User user = repository.findById(userId)
                 .orElseThrow(() -> new EntityNotFoundException("Usuario no encontrado"));
         revokeAllUserTokens(user);
+        tokenRepository.revokeAllByUserId(userId);
     }
 
     /**
-     * Genera un código de 6 dígitos para la 2FA
-     * @return El código de 6 dígitos parseado a string
+     * Cierra todas las sesiones de un conjunto de usuarios (cierre de sesión forzado por un administrador).
+     * Incrementa la versión de sesión y revoca sus tokens con una sola sentencia cada una, sin cargar entidades
+     *
+     * @param userIds Ids de los usuarios a los que se les cerrará la sesión
+     * @return Cantidad de tokens revocados
      */
-    public static String generateSecureRandomCode(){
-        SecureRandom secureRandom = new SecureRandom();
-        int code = 100000 + secureRandom.nextInt(900000);
-        return String.valueOf(code);
+    @Transactional
+    public int forceLogout(List<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            throw new IllegalArgumentException("Debe indicar al menos un usuario");
+        }
+        repository.incrementSessionVersionByIdIn(userIds);
+        repository.findEmailsByIdIn(userIds).forEach(userDetailsService::evict);
+        return tokenRepository.revokeAllByUserIds(userIds);
     }
 
     /**
@@ -236,6 +240,8 @@ public class AuthService {
                 .orElseThrow(() -> new EntityNotFoundException("Usuario no encontrado"));
 
         user.setIs2faEnabled(!user.getIs2faEnabled());
+        user.setProfileVersion(user.getProfileVersion() + 1);
+        userDetailsService.evict(user.getEmail());
 
         return user.getIs2faEnabled()
                 ? "La autenticación de dos factores ha sido activada"
@@ -0,0 +1,79 @@
+package com.lp.gestionusuariosroles.auth.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+
+/**
+ * Códigos 2FA en memoria, con expiración por tiempo y un límite de intentos por código.
+ * Ya no se escribe el código en la tabla users
+ */
+@Component
+@ConditionalOnProperty(name = "application.security.two-factor.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryTwoFactorCodeStore implements TwoFactorCodeStore {
+
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final Cache<String, PendingCode> codes;
+    private final int maxAttempts;
+
+    public InMemoryTwoFactorCodeStore(
+            @Value("${application.security.two-factor.ttl:5m}") Duration ttl,
+            @Value("${application.security.two-factor.max-attempts:5}") int maxAttempts,
+            @Value("${application.security.two-factor.max-entries:100000}") long maxEntries
+    ) {
+        this.codes = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .build();
+        this.maxAttempts = maxAttempts;
+    }
+
+    @Override
+    public String issue(String email) {
+        String code = String.valueOf(100000 + secureRandom.nextInt(900000));
+        codes.put(email, new PendingCode(code));
+        return code;
+    }
+
+    @Override
+    public boolean verify(String email, String code) {
+        PendingCode pending = codes.getIfPresent(email);
+        if (pending == null || code == null) {
+            return false;
+        }
+        if (pending.matches(code)) {
+            // Solo gana quien lo elimina: el código es de un solo uso aunque lleguen dos solicitudes a la vez
+            return codes.asMap().remove(email, pending);
+        }
+        if (pending.registerFailedAttempt() >= maxAttempts) {
+            codes.asMap().remove(email, pending);
+        }
+        return false;
+    }
+
+    private static final class PendingCode {
+        private final byte[] code;
+        private int failedAttempts;
+
+        private PendingCode(String code) {
+            this.code = code.getBytes(StandardCharsets.UTF_8);
+        }
+
+        // Comparación en tiempo constante
+        private boolean matches(String candidate) {
+            return MessageDigest.isEqual(code, candidate.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private synchronized int registerFailedAttempt() {
+            return ++failedAttempts;
+        }
+    }
+
+}
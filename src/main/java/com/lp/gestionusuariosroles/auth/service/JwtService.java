@@ -1,26 +1,57 @@
 package com.lp.gestionusuariosroles.auth.service;
 
+import com.lp.gestionusuariosroles.config.SessionCookie;
 import com.lp.gestionusuariosroles.user.repository.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.Date;
 import java.util.Map;
 
 @Service
 public class JwtService {
 
+    /**
+     * Atributo de la solicitud donde se guardan los claims ya verificados del JWT,
+     * para no volver a parsear ni verificar la firma durante la misma solicitud
+     */
+    public static final String VERIFIED_CLAIMS_ATTRIBUTE = JwtService.class.getName() + ".VERIFIED_CLAIMS";
+
+    private static final String SESSION_VERSION_CLAIM = "sessionVersion";
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String DISPLAY_NAME_CLAIM = "name";
+    private static final String PROFILE_VERSION_CLAIM = "profileVersion";
+
     @Value("${application.security.jwt.secret-key}")
     private String secretKey;
     @Value("${application.security.jwt.expiration}")
     private long jwtExpiration;
 
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+
+    /**
+     * Decodifica la clave secreta y construye el parser una sola vez al iniciar el servicio
+     */
+    @PostConstruct
+    void init() {
+        this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.jwtParser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+    }
+
     /**
     * Extrae el subject (email) del token
     *
@@ -28,12 +59,7 @@ public class JwtService {
     * @return El texto plano del subject (email)
     */
     public String extractUsername(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getSubject();
+        return extractPayload(token).getSubject();
     }
 
     /**
@@ -42,24 +68,51 @@ public class JwtService {
     * @param user Usuario al que se le generará el token
     * @return El resultado del servicio buildToken
     * */
-    public String generateToken(final User user) {return buildToken(user, jwtExpiration);}
+    public String generateToken(final User user) {return generateToken(user, expirationFromNow());}
+
+    /**
+    * Genera un nuevo JWT con una expiración ya calculada (ver {@link #expirationFromNow()}),
+    * para que quien lo guarda no tenga que volver a parsear el token para conocerla
+    *
+    * @param user Usuario al que se le generará el token
+    * @param expiresAt Instante de expiración del token
+    * @return JWT construido
+    * */
+    public String generateToken(final User user, final Instant expiresAt) {return buildToken(user, expiresAt);}
+
+    /**
+    * Instante de expiración de un token emitido ahora, truncado a segundos como el claim exp
+    *
+    * @return El instante de expiración
+    */
+    public Instant expirationFromNow() {
+        return Instant.now().plusMillis(jwtExpiration).truncatedTo(ChronoUnit.SECONDS);
+    }
 
     /**
-    * Construye el JWT (rol, email, iat, exp)
+    * Construye el JWT (rol, versión de sesión, id, nombre, versión de perfil, email, iat, exp)
     *
     * @param user Usuario al que se le construirá el token
     * @param expiration Tiempo de duración del token
     * @return JWT construido
     * */
     public String buildToken(final User user, final long expiration){
+        return buildToken(user, Instant.now().plusMillis(expiration));
+    }
+
+    private String buildToken(final User user, final Instant expiresAt){
         return Jwts.builder()
                 .claims(Map.of(
-                        "rol", user.getRol()
+                        "rol", user.getRol(),
+                        SESSION_VERSION_CLAIM, user.getSessionVersion(),
+                        USER_ID_CLAIM, user.getId(),
+                        DISPLAY_NAME_CLAIM, user.getNombres() + " " + user.getApellidos(),
+                        PROFILE_VERSION_CLAIM, user.getProfileVersion()
                 ))
                 .subject(user.getEmail())
                 .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey())
+                .expiration(Date.from(expiresAt))
+                .signWith(signingKey)
                 .compact();
     }
 
@@ -70,13 +123,56 @@ public class JwtService {
     * @return El payload del JWT
     */
     public Claims extractPayload(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
+        return jwtParser
                 .parseSignedClaims(token)
                 .getPayload();
     }
 
+    /**
+     * Devuelve los claims verificados del JWT de la solicitud.
+     * Si el filtro ya los verificó se reutilizan; si no, se parsea la cookie USER_SESSION
+     * una sola vez y se guardan en la solicitud para los siguientes usos.
+     *
+     * @param request Objeto HttpServletRequest que contiene las cookies
+     * @return Los claims verificados, o null si la solicitud no trae JWT
+     * @throws io.jsonwebtoken.JwtException Si el token está malformado o es inválido.
+     */
+    public Claims getVerifiedClaims(HttpServletRequest request) {
+        Object cached = request.getAttribute(VERIFIED_CLAIMS_ATTRIBUTE);
+        if (cached instanceof Claims claims) {
+            return claims;
+        }
+
+        String jwt = SessionCookie.getValue(request);
+        if (jwt == null) {
+            return null;
+        }
+        Claims claims = extractPayload(jwt);
+        request.setAttribute(VERIFIED_CLAIMS_ATTRIBUTE, claims);
+        return claims;
+    }
+
+    /**
+     * Devuelve la identidad del usuario en sesión a partir de los claims verificados del JWT,
+     * sin consultar la Base de Datos
+     *
+     * @param request Objeto HttpServletRequest que contiene las cookies
+     * @return La identidad del token, o null si la solicitud no trae JWT
+     * @throws io.jsonwebtoken.JwtException Si el token está malformado o es inválido.
+     */
+    public SessionClaims getSessionClaims(HttpServletRequest request) {
+        Claims claims = getVerifiedClaims(request);
+        if (claims == null) {
+            return null;
+        }
+        return new SessionClaims(
+                claims.get(USER_ID_CLAIM, Long.class),
+                claims.getSubject(),
+                claims.get(DISPLAY_NAME_CLAIM, String.class),
+                claims.get(PROFILE_VERSION_CLAIM, Integer.class)
+        );
+    }
+
     /**
     * Verifica si un token JWT es válido para un usuario específico.
     *
@@ -87,43 +183,41 @@ public class JwtService {
     * @throws io.jsonwebtoken.JwtException Si el token está malformado o es inválido.
     */
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return username.equals(userDetails.getUsername()) && !isTokenExpired(token);
+        return isTokenValid(extractPayload(token), userDetails);
     }
 
     /**
-     * Verifica si un token JWT ha expirado.
+     * Verifica si los claims ya verificados de un JWT corresponden a un usuario y no han expirado.
      *
-     * @param token Token JWT a validar.
-     * @return `true` si el token está expirado, `false` si aún es válido.
+     * @param claims Claims verificados del JWT.
+     * @param userDetails Detalles del usuario autenticado.
+     * @return `true` si el token es válido, `false` en caso contrario.
      */
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return claims.getSubject().equals(userDetails.getUsername()) && !isTokenExpired(claims);
     }
 
     /**
-     * Extrae la fecha de expiración (claim "exp") del token JWT.
+     * Verifica si el token fue emitido con la versión de sesión vigente del usuario.
+     * Los tokens emitidos antes de la última revocación (o sin el claim) se consideran revocados.
      *
-     * @param token Token JWT del cual extraer la fecha.
-     * @return Fecha de expiración del token.
-     **/
-    private Date extractExpiration(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getExpiration();
+     * @param claims Claims verificados del JWT.
+     * @param currentSessionVersion Versión de sesión actual del usuario.
+     * @return `true` si la versión del token es la vigente, `false` en caso contrario.
+     */
+    public boolean isSessionVersionCurrent(Claims claims, int currentSessionVersion) {
+        Integer tokenSessionVersion = claims.get(SESSION_VERSION_CLAIM, Integer.class);
+        return tokenSessionVersion != null && tokenSessionVersion == currentSessionVersion;
     }
 
     /**
-     * Genera la clave secreta (SecretKey) usada para firmar/verificar tokens JWT.
+     * Verifica si un token JWT ha expirado.
      *
-     * @return Clave secreta en formato HMAC-SHA.
+     * @param claims Claims verificados del JWT.
+     * @return `true` si el token está expirado, `false` si aún es válido.
      */
-    private SecretKey getSigningKey() {
-        final byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
     }
 
 }
@@ -0,0 +1,190 @@
+package com.lp.gestionusuariosroles.auth.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lp.gestionusuariosroles.exceptions.TooManyAttemptsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Limita los intentos de login y de verificación 2FA antes de hacer cualquier hashing o consulta a la Base de Datos.
+ * -
+ * Usa un token bucket por IP del cliente y otro por email, y bloquea temporalmente un email después
+ * de N fallos consecutivos. Los estados viven en cachés acotadas que desalojan las entradas inactivas;
+ * cada estado se sincroniza por separado, así que solo compiten los intentos del mismo email o IP.
+ * -
+ * Los intentos rechazados se cuentan en "auth.login.rejected" con la etiqueta "reason" (email, ip, locked)
+ */
+@Component
+public class LoginAttemptLimiter {
+
+    private final Cache<String, AttemptState> emailStates;
+    private final Cache<String, AttemptState> ipStates;
+
+    private final int emailCapacity;
+    private final long emailRefillNanos;
+    private final int ipCapacity;
+    private final long ipRefillNanos;
+    private final int maxFailures;
+    private final long lockoutNanos;
+
+    private final Counter rejectedByEmail;
+    private final Counter rejectedByIp;
+    private final Counter rejectedByLockout;
+
+    public LoginAttemptLimiter(
+            MeterRegistry meterRegistry,
+            @Value("${application.security.login-limiter.max-entries:100000}") long maxEntries,
+            @Value("${application.security.login-limiter.idle-expiration:30m}") Duration idleExpiration,
+            @Value("${application.security.login-limiter.email.capacity:10}") int emailCapacity,
+            @Value("${application.security.login-limiter.email.refill-period:6s}") Duration emailRefillPeriod,
+            @Value("${application.security.login-limiter.ip.capacity:30}") int ipCapacity,
+            @Value("${application.security.login-limiter.ip.refill-period:2s}") Duration ipRefillPeriod,
+            @Value("${application.security.login-limiter.max-failures:5}") int maxFailures,
+            @Value("${application.security.login-limiter.lockout:15m}") Duration lockout
+    ) {
+        this.emailStates = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterAccess(idleExpiration)
+                .build();
+        this.ipStates = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterAccess(idleExpiration)
+                .build();
+        this.emailCapacity = emailCapacity;
+        this.emailRefillNanos = emailRefillPeriod.toNanos();
+        this.ipCapacity = ipCapacity;
+        this.ipRefillNanos = ipRefillPeriod.toNanos();
+        this.maxFailures = maxFailures;
+        this.lockoutNanos = lockout.toNanos();
+
+        this.rejectedByEmail = rejectedCounter(meterRegistry, "email");
+        this.rejectedByIp = rejectedCounter(meterRegistry, "ip");
+        this.rejectedByLockout = rejectedCounter(meterRegistry, "locked");
+    }
+
+    /**
+     * Verifica que el email no esté bloqueado y consume un intento de los buckets de la IP y del email.
+     * La IP se verifica primero: un cliente que ya superó su límite no consume intentos del email,
+     * así no puede agotar ni bloquear la cuenta de otro usuario
+     *
+     * @param email Email con el que se intenta autenticar
+     * @param clientIp IP del cliente
+     * @throws TooManyAttemptsException Si el email está bloqueado o se superó el límite de intentos
+     */
+    public void checkAllowed(String email, String clientIp) {
+        long now = System.nanoTime();
+        AttemptState emailState = emailStates.get(normalize(email), key -> new AttemptState(emailCapacity, now));
+
+        long lockedNanos = emailState.remainingLockout(now);
+        if (lockedNanos > 0) {
+            rejectedByLockout.increment();
+            throw new TooManyAttemptsException(
+                    "La cuenta está bloqueada temporalmente por demasiados intentos fallidos", toSeconds(lockedNanos));
+        }
+
+        AttemptState ipState = ipStates.get(String.valueOf(clientIp), key -> new AttemptState(ipCapacity, now));
+        if (!ipState.tryConsume(now, ipCapacity, ipRefillNanos)) {
+            rejectedByIp.increment();
+            throw new TooManyAttemptsException("Demasiados intentos, intente nuevamente más tarde", toSeconds(ipRefillNanos));
+        }
+        if (!emailState.tryConsume(now, emailCapacity, emailRefillNanos)) {
+            rejectedByEmail.increment();
+            throw new TooManyAttemptsException("Demasiados intentos, intente nuevamente más tarde", toSeconds(emailRefillNanos));
+        }
+    }
+
+    /**
+     * Registra un intento fallido; al llegar al máximo de fallos consecutivos el email se bloquea temporalmente
+     *
+     * @param email Email con el que falló la autenticación
+     */
+    public void recordFailure(String email) {
+        long now = System.nanoTime();
+        emailStates.get(normalize(email), key -> new AttemptState(emailCapacity, now))
+                .recordFailure(now, maxFailures, lockoutNanos);
+    }
+
+    /**
+     * Reinicia el contador de fallos consecutivos del email
+     *
+     * @param email Email que se autenticó correctamente
+     */
+    public void recordSuccess(String email) {
+        AttemptState state = emailStates.getIfPresent(normalize(email));
+        if (state != null) {
+            state.resetFailures();
+        }
+    }
+
+    private static String normalize(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static long toSeconds(long nanos) {
+        return Math.max(1, Duration.ofNanos(nanos).toSeconds());
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("auth.login.rejected")
+                .description("Intentos de autenticación rechazados antes de verificar credenciales")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Token bucket y contador de fallos de un email o una IP
+     */
+    private static final class AttemptState {
+        private double tokens;
+        private long lastRefillNanos;
+        private int consecutiveFailures;
+        private boolean locked;
+        private long lockedUntilNanos;
+
+        private AttemptState(int capacity, long now) {
+            this.tokens = capacity;
+            this.lastRefillNanos = now;
+        }
+
+        private synchronized boolean tryConsume(long now, int capacity, long refillNanos) {
+            tokens = Math.min(capacity, tokens + (double) (now - lastRefillNanos) / refillNanos);
+            lastRefillNanos = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        private synchronized long remainingLockout(long now) {
+            if (!locked) {
+                return 0;
+            }
+            long remaining = lockedUntilNanos - now;
+            if (remaining <= 0) {
+                locked = false;
+                return 0;
+            }
+            return remaining;
+        }
+
+        private synchronized void recordFailure(long now, int maxFailures, long lockoutNanos) {
+            if (++consecutiveFailures >= maxFailures) {
+                locked = true;
+                lockedUntilNanos = now + lockoutNanos;
+                consecutiveFailures = 0;
+            }
+        }
+
+        private synchronized void resetFailures() {
+            consecutiveFailures = 0;
+        }
+    }
+
+}
@@ -3,18 +3,23 @@ package com.lp.gestionusuariosroles.auth.service;
 import com.lp.gestionusuariosroles.exceptions.InvalidPasswordException;
 import com.lp.gestionusuariosroles.exceptions.InvalidTokenException;
 import com.lp.gestionusuariosroles.auth.controller.NewPasswordRequest;
+import com.lp.gestionusuariosroles.auth.repository.PasswordResetToken;
+import com.lp.gestionusuariosroles.auth.repository.PasswordResetTokenRepository;
+import com.lp.gestionusuariosroles.config.CachingUserDetailsService;
+import com.lp.gestionusuariosroles.email.service.EmailOutboxService;
 import com.lp.gestionusuariosroles.exceptions.PasswordMismatchException;
 import com.lp.gestionusuariosroles.user.repository.User;
 import com.lp.gestionusuariosroles.user.repository.UserRepository;
+import com.lp.gestionusuariosroles.validation.InputValidator;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import okhttp3.*;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.UUID;
 
 @Service
@@ -23,26 +28,27 @@ public class ResendService {
 
     private final UserRepository repository;
     private final PasswordEncoder passwordEncoder;
+    private final CachingUserDetailsService userDetailsService;
+    private final EmailOutboxService outboxService;
+    private final PasswordResetTokenRepository resetTokenRepository;
+    private final InputValidator inputValidator;
 
-    @Value("${resend.api.key}")
-    private String resendApiKey;
+    @Value("${application.security.password-reset.ttl:30m}")
+    private Duration resetTokenTtl;
 
-    @Value("${resend.from.email}")
-    private String fromEmail;
+    @Value("${application.security.two-factor.ttl:5m}")
+    private Duration twoFactorCodeTtl;
 
-    private static final String RESEND_API_URL = "https://api.resend.com/emails";
     private static final String URL_LOGIN = "http://localhost:5173/login";
 
     /**
-     * Envía un email al correo especificado brindando instrucciones para reestablecer la contraseña
+     * Encola un email al correo especificado brindando instrucciones para reestablecer la contraseña.
+     * El envío se realiza en segundo plano desde la tabla email_outbox
      *
      * @param toEmail El email al que se le enviará el correo
      * @param resetLink URL que llevará al usuario a reestablecer su contraseña
-     * @throws IOException Por si ocurre algún error durante el envío
      */
-    public void sendPasswordResetEmail(String toEmail, String resetLink) throws IOException {
-        OkHttpClient client = new OkHttpClient();
-
+    public void sendPasswordResetEmail(String toEmail, String resetLink) {
         String htmlContent = String.format(
                 "<div style=\"font-family: Arial, sans-serif; max-width: 600px; margin: 0 auto; border: 1px solid #e5e7eb; border-radius: 8px; overflow: hidden;\">" +
                         "  <div style=\"background-color: #1a1a1a; padding: 20px; text-align: center;\">" +
@@ -59,40 +65,15 @@ public class ResendService {
                 resetLink
         );
 
-        String jsonBody = String.format(
-                "{\"from\": \"%s\", \"to\": [\"%s\"], \"subject\": \"Instrucciones para restablecer tu contraseña\", " +
-                        "\"html\": \"%s\"}",
-                fromEmail,
-                toEmail,
-                htmlContent.replace("\"", "\\\"")  // Escapar comillas para JSON
-        );
-
-        RequestBody body = RequestBody.create(jsonBody, MediaType.parse("application/json; charset=utf-8"));
-
-        Request request = new Request.Builder()
-                .url(RESEND_API_URL)
-                .post(body)
-                .addHeader("Authorization", "Bearer " + resendApiKey)
-                .addHeader("Content-Type", "application/json")
-                .build();
-
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                assert response.body() != null;
-                throw new IOException("Error al enviar el correo: " + response.body().string());
-            }
-        }
+        outboxService.enqueue(toEmail, "Instrucciones para restablecer tu contraseña", htmlContent, resetTokenTtl);
     }
 
     /**
-     * Envía un correo al email especificado para informar el reestablecimiento de su contraseña
+     * Encola un correo al email especificado para informar el reestablecimiento de su contraseña
      *
      * @param toEmail Correo al que se le enviará la confirmación
-     * @throws IOException Por si ocurre algún error durante el envío
      */
-    private void sendConfirmNewPasswordEmail(String toEmail) throws IOException {
-        OkHttpClient client = new OkHttpClient();
-
+    private void sendConfirmNewPasswordEmail(String toEmail) {
         String htmlContent = String.format(
                 "<div style=\"font-family: Arial, sans-serif; max-width: 600px; margin: 0 auto; border: 1px solid #e5e7eb; border-radius: 8px; overflow: hidden;\">" +
                 "  <div style=\"background-color: #1a1a1a; padding: 20px; text-align: center;\">" +
@@ -108,34 +89,10 @@ public class ResendService {
                 URL_LOGIN
         );
 
-        String jsonBody = String.format(
-                "{\"from\": \"%s\", \"to\": [\"%s\"], \"subject\": \"Contraseña cambiada\", " +
-                        "\"html\": \"%s\"}",
-                fromEmail,
-                toEmail,
-                htmlContent.replace("\"", "\\\"")  // Escapar comillas para JSON
-        );
-
-        RequestBody body = RequestBody.create(jsonBody, MediaType.parse("application/json; charset=utf-8"));
-
-        Request request = new Request.Builder()
-                .url(RESEND_API_URL)
-                .post(body)
-                .addHeader("Authorization", "Bearer " + resendApiKey)
-                .addHeader("Content-Type", "application/json")
-                .build();
-
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                assert response.body() != null;
-                throw new IOException("Error al enviar el correo: " + response.body().string());
-            }
-        }
+        outboxService.enqueue(toEmail, "Contraseña cambiada", htmlContent);
     }
 
-    public void sendTwoFactorCodeEmail(String toEmail, String twoFactorCode) throws IOException {
-        OkHttpClient client = new OkHttpClient();
-
+    public void sendTwoFactorCodeEmail(String toEmail, String twoFactorCode) {
         String htmlContent = String.format(
                 "<div style=\"font-family: Arial, sans-serif; max-width: 600px; margin: 0 auto; border: 1px solid #e5e7eb; border-radius: 8px; overflow: hidden;\">" +
                         "  <div style=\"background-color: #1a1a1a; padding: 20px; text-align: center;\">" +
@@ -150,29 +107,7 @@ public class ResendService {
                         "</div>"
         );
 
-        String jsonBody = String.format(
-                "{\"from\": \"%s\", \"to\": [\"%s\"], \"subject\": \"Código 2FA\", " +
-                        "\"html\": \"%s\"}",
-                fromEmail,
-                toEmail,
-                htmlContent.replace("\"", "\\\"")  // Escapar comillas para JSON
-        );
-
-        RequestBody body = RequestBody.create(jsonBody, MediaType.parse("application/json; charset=utf-8"));
-
-        Request request = new Request.Builder()
-                .url(RESEND_API_URL)
-                .post(body)
-                .addHeader("Authorization", "Bearer " + resendApiKey)
-                .addHeader("Content-Type", "application/json")
-                .build();
-
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                assert response.body() != null;
-                throw new IOException("Error al enviar el correo: " + response.body().string());
-            }
-        }
+        outboxService.enqueue(toEmail, "Código 2FA", htmlContent, twoFactorCodeTtl);
     }
 
     /**
@@ -187,18 +122,22 @@ public class ResendService {
         User user = repository.findByEmail(email)
                 .orElseThrow(() -> new EntityNotFoundException("Usuario no encontrado"));
 
+        // Solo queda vigente el último enlace enviado
+        resetTokenRepository.deleteAllByUserId(user.getId());
+
         String resetToken = UUID.randomUUID().toString();
-        user.setResetToken(resetToken);
-        repository.save(user);
+        resetTokenRepository.save(
+                PasswordResetToken.builder()
+                        .tokenHash(TokenDigest.of(resetToken))
+                        .expiresAt(Instant.now().plus(resetTokenTtl))
+                        .user(user)
+                        .build()
+        );
 
         String resetLink = "http://localhost:5173/reset-password?token=" + resetToken;
 
-        try{
-            sendPasswordResetEmail(email, resetLink);
-            return "Si el email existe, se enviará en enlace de recuperación";
-        } catch (IOException e) {
-            return "Error al enviar el correo: " + e.getMessage();
-        }
+        sendPasswordResetEmail(email, resetLink);
+        return "Si el email existe, se enviará en enlace de recuperación";
     }
 
     /**
@@ -210,13 +149,12 @@ public class ResendService {
      */
     @Transactional
     public String resetPassword(String token, NewPasswordRequest request) {
-        User user = repository.findByResetToken(token);
-        if(user == null){
-            throw new InvalidTokenException("Token inválido o expirado");
-        }
+        PasswordResetToken resetToken = resetTokenRepository.findValidByTokenHash(TokenDigest.of(token), Instant.now())
+                .orElseThrow(() -> new InvalidTokenException("Token inválido o expirado"));
+        User user = resetToken.getUser();
 
-        if (!request.newPassword().matches("^(?=.*[0-9])(?=.*[a-z])(?=.*[A-Z])(?=.*[@#$%^&+=])(?=\\S+$).{8,}$")) {
-            throw new InvalidPasswordException("La contraseña debe tener al menos 8 caracteres, una mayúscula, un número y un carácter especial");
+        if (!inputValidator.isStrongPassword(request.newPassword())) {
+            throw new InvalidPasswordException(InputValidator.PASSWORD_RULES_MESSAGE);
         }
         if(!request.newPassword().equals(request.confirmNewPassword())){
             throw new PasswordMismatchException("Las contraseñas deben ser iguales");
@@ -225,15 +163,16 @@ public class ResendService {
             throw new InvalidPasswordException("La contraseña nueva no puede ser igual a la antigua");
         }
 
+        // El token es de un solo uso: si otra solicitud ya lo consumió, se rechaza
+        if (resetTokenRepository.consume(resetToken.getId()) == 0) {
+            throw new InvalidTokenException("Token inválido o expirado");
+        }
+
         user.setPassword(passwordEncoder.encode(request.newPassword()));
-        user.setResetToken(null);
         repository.save(user);
+        userDetailsService.evict(user.getEmail());
 
-        try{
-            sendConfirmNewPasswordEmail(user.getEmail());
-            return "Contraseña cambiada exitosamente";
-        } catch (IOException e) {
-            return "Error al enviar el correo: " + e.getMessage();
-        }
+        sendConfirmNewPasswordEmail(user.getEmail());
+        return "Contraseña cambiada exitosamente";
     }
 }
@@ -0,0 +1,35 @@
+package com.lp.gestionusuariosroles.auth.service;
+
+import com.lp.gestionusuariosroles.user.repository.User;
+
+/**
+ * Identidad del usuario en sesión, tal como viaja en los claims verificados del JWT
+ *
+ * @param userId Id del usuario (null en tokens emitidos antes de incluir el claim)
+ * @param email Email del usuario (subject del token)
+ * @param displayName Nombres y apellidos del usuario
+ * @param profileVersion Versión del perfil con la que se emitió el token
+ */
+public record SessionClaims(
+        Long userId,
+        String email,
+        String displayName,
+        Integer profileVersion
+) {
+
+    /**
+     * Construye la identidad a partir del usuario persistido
+     *
+     * @param user Usuario en sesión
+     * @return Identidad con los datos vigentes del usuario
+     */
+    public static SessionClaims of(User user) {
+        return new SessionClaims(
+                user.getId(),
+                user.getEmail(),
+                user.getNombres() + " " + user.getApellidos(),
+                user.getProfileVersion()
+        );
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.lp.gestionusuariosroles.auth.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Calcula el digest SHA-256 (32 bytes) de un JWT.
+ * En la tabla token solo se guarda este digest, de modo que el índice único tiene
+ * un ancho fijo sin importar el tamaño del token
+ */
+public final class TokenDigest {
+
+    private TokenDigest() {
+    }
+
+    /**
+     * Calcula el digest SHA-256 de un JWT
+     *
+     * @param jwt El JWT en texto plano
+     * @return Los 32 bytes del digest
+     */
+    public static byte[] of(String jwt) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(jwt.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no está disponible", e);
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.lp.gestionusuariosroles.auth.service;
+
+import com.lp.gestionusuariosroles.auth.repository.PasswordResetTokenRepository;
+import com.lp.gestionusuariosroles.auth.repository.TokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.IntSupplier;
+
+/**
+ * Elimina periódicamente de la tabla token los tokens revocados y los expirados hace más
+ * del tiempo de retención, y de la tabla password_reset_token los enlaces de recuperación expirados.
+ * -
+ * Borra en lotes acotados (cada lote en su propia transacción) para no bloquear la tabla por mucho tiempo.
+ * Un token borrado se trata como revocado en el filtro JWT, así que los revocados se pueden borrar de inmediato
+ */
+@Slf4j
+@Service
+public class TokenPurgeService {
+
+    private final TokenRepository tokenRepository;
+    private final PasswordResetTokenRepository resetTokenRepository;
+    private final Duration retention;
+    private final int batchSize;
+
+    public TokenPurgeService(
+            TokenRepository tokenRepository,
+            PasswordResetTokenRepository resetTokenRepository,
+            @Value("${application.security.token-purge.retention:7d}") Duration retention,
+            @Value("${application.security.token-purge.batch-size:1000}") int batchSize
+    ) {
+        this.tokenRepository = tokenRepository;
+        this.resetTokenRepository = resetTokenRepository;
+        this.retention = retention;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Purga los tokens expirados o revocados, lote por lote, hasta que no quede ninguno por borrar
+     *
+     * @return Cantidad total de tokens eliminados
+     */
+    @Scheduled(
+            initialDelayString = "${application.security.token-purge.initial-delay:PT1M}",
+            fixedDelayString = "${application.security.token-purge.interval:PT1H}"
+    )
+    public int purgeExpiredAndRevokedTokens() {
+        Instant cutoff = Instant.now().minus(retention);
+        // Una sentencia por condición, para que cada una use su índice (ver migración 013)
+        int total = deleteInBatches(() -> tokenRepository.deleteRevokedBatch(batchSize))
+                + deleteInBatches(() -> tokenRepository.deleteExpiredBatch(cutoff, batchSize));
+
+        if (total > 0) {
+            log.info("Se eliminaron {} tokens expirados o revocados", total);
+        }
+        return total;
+    }
+
+    /**
+     * Repite el borrado mientras los lotes salgan completos
+     */
+    private int deleteInBatches(IntSupplier deleteBatch) {
+        int total = 0;
+        int deleted;
+        do {
+            deleted = deleteBatch.getAsInt();
+            total += deleted;
+        } while (deleted == batchSize);
+        return total;
+    }
+
+    /**
+     * Purga los tokens de recuperación de contraseña expirados
+     *
+     * @return Cantidad de tokens eliminados
+     */
+    @Scheduled(
+            initialDelayString = "${application.security.token-purge.initial-delay:PT1M}",
+            fixedDelayString = "${application.security.token-purge.interval:PT1H}"
+    )
+    public int purgeExpiredPasswordResetTokens() {
+        return resetTokenRepository.deleteExpired(Instant.now());
+    }
+
+}
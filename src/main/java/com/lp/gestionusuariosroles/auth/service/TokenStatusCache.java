@@ -0,0 +1,91 @@
+package com.lp.gestionusuariosroles.auth.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lp.gestionusuariosroles.auth.repository.TokenRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+
+/**
+ * Caché en memoria del estado (expirado o revocado) de los JWT almacenados en la tabla token,
+ * indexada por el digest del token (ver {@link TokenDigest}).
+ * -
+ * Evita consultar la Base de Datos en cada solicitud autenticada. Las entradas se eliminan por
+ * tamaño máximo y por tiempo de vida, y las revocaciones se escriben en la caché en el momento.
+ * -
+ * Las métricas de aciertos, fallos y desalojos se publican como "cache.*" con el nombre "tokenStatus"
+ */
+@Component
+public class TokenStatusCache {
+
+    private final TokenRepository tokenRepository;
+    private final Cache<DigestKey, Boolean> cache;
+
+    public TokenStatusCache(
+            TokenRepository tokenRepository,
+            MeterRegistry meterRegistry,
+            @Value("${application.security.token-cache.max-size:10000}") long maxSize,
+            @Value("${application.security.token-cache.ttl:5m}") Duration ttl
+    ) {
+        this.tokenRepository = tokenRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "tokenStatus");
+    }
+
+    /**
+     * Indica si un token está expirado o revocado, consultando la Base de Datos solo si no está en caché.
+     * La consulta se hace fuera del bloqueo interno de la caché, para no fijar (pin) el hilo portador
+     * cuando las solicitudes se atienden con hilos virtuales
+     *
+     * @param tokenHash Digest del JWT a consultar
+     * @return `true` si el token está expirado, revocado o no existe; `false` si sigue vigente
+     */
+    public boolean isExpiredOrRevoked(byte[] tokenHash) {
+        DigestKey key = DigestKey.of(tokenHash);
+        Boolean cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        boolean expiredOrRevoked = tokenRepository.findByTokenHash(tokenHash)
+                .map(storedToken -> storedToken.getIsExpired() || storedToken.getIsRevoked())
+                .orElse(true);
+        // putIfAbsent: una revocación escrita mientras se consultaba la Base de Datos tiene prioridad
+        Boolean previous = cache.asMap().putIfAbsent(key, expiredOrRevoked);
+        return previous != null ? previous : expiredOrRevoked;
+    }
+
+    /**
+     * Marca un token como revocado en la caché.
+     * Una revocación nunca se deshace, así que se escribe directamente en lugar de invalidar la entrada
+     *
+     * @param tokenHash Digest del JWT revocado
+     */
+    public void markRevoked(byte[] tokenHash) {
+        cache.put(DigestKey.of(tokenHash), true);
+    }
+
+    /**
+     * Clave de la caché: los 32 bytes del digest SHA-256 como cuatro long, sin crear un String por solicitud
+     */
+    private record DigestKey(long w0, long w1, long w2, long w3) {
+
+        private static DigestKey of(byte[] tokenHash) {
+            if (tokenHash.length != 32) {
+                throw new IllegalArgumentException("El digest del token debe tener 32 bytes");
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(tokenHash);
+            return new DigestKey(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+        }
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.lp.gestionusuariosroles.auth.service;
+
+/**
+ * Almacén de códigos de verificación 2FA con expiración y un número máximo de intentos.
+ * La implementación por defecto es en memoria ({@link InMemoryTwoFactorCodeStore}); para varias
+ * instancias de la aplicación se puede registrar otra implementación (por ejemplo, JDBC)
+ */
+public interface TwoFactorCodeStore {
+
+    /**
+     * Genera un nuevo código para el usuario, reemplazando el anterior si existía
+     *
+     * @param email Email del usuario
+     * @return El código de 6 dígitos generado
+     */
+    String issue(String email);
+
+    /**
+     * Verifica el código del usuario. Un código correcto se consume; un código incorrecto
+     * cuenta como intento y, al agotar los intentos, el código se invalida
+     *
+     * @param email Email del usuario
+     * @param code Código ingresado por el usuario
+     * @return `true` si el código es correcto y vigente, `false` en caso contrario
+     */
+    boolean verify(String email, String code);
+
+}
@@ -0,0 +1,33 @@
+package com.lp.gestionusuariosroles.config;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Aplica cambios a estructuras en memoria (índices, contadores) solo cuando la transacción
+ * que los originó se confirma, para que un rollback no deje datos que no existen en la Base de Datos
+ */
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    /**
+     * Ejecuta el cambio después del commit de la transacción activa, o de inmediato si no hay una
+     *
+     * @param change Cambio a aplicar
+     */
+    public static void run(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.lp.gestionusuariosroles.config;
+
+import com.lp.gestionusuariosroles.user.repository.Rol;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Roles que pueden invocar el método (ver {@link AllowedRolesAuthorizationManager}).
+ * Sin roles, basta con que el usuario esté autenticado
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface AllowedRoles {
+    Rol[] value() default {};
+}
@@ -0,0 +1,93 @@
+package com.lp.gestionusuariosroles.config;
+
+import com.lp.gestionusuariosroles.user.repository.Rol;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.authorization.AuthorizationResult;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Verificación de {@link AllowedRoles} sin expresiones SpEL.
+ * -
+ * Los roles permitidos de cada endpoint se compilan al iniciar la aplicación en una máscara de bits
+ * (un bit por {@link Rol}); cada solicitud solo busca la máscara ya compilada y la compara con los roles
+ * del usuario autenticado, sin evaluar expresiones ni crear objetos. Un método anotado que no es un endpoint
+ * se compila la primera vez que se invoca
+ */
+public class AllowedRolesAuthorizationManager implements AuthorizationManager<MethodInvocation> {
+
+    // Máscara de un método anotado sin roles: cualquier usuario autenticado
+    private static final long ANY_AUTHENTICATED = -1L;
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+
+    private final Map<Method, AllowedMask> allowedMasks = new ConcurrentHashMap<>();
+
+    /**
+     * Compila las máscaras de todos los endpoints anotados al iniciar la aplicación
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void compile(ContextRefreshedEvent event) {
+        for (RequestMappingHandlerMapping mapping : event.getApplicationContext()
+                .getBeansOfType(RequestMappingHandlerMapping.class).values()) {
+            for (HandlerMethod handlerMethod : mapping.getHandlerMethods().values()) {
+                Method method = handlerMethod.getMethod();
+                if (AnnotationUtils.findAnnotation(method, AllowedRoles.class) != null) {
+                    allowedMasks.computeIfAbsent(method, AllowedRolesAuthorizationManager::mask);
+                }
+            }
+        }
+    }
+
+    @Override
+    public AuthorizationResult authorize(Supplier<Authentication> authentication, MethodInvocation invocation) {
+        AllowedMask allowed = allowedMasks.get(invocation.getMethod());
+        if (allowed == null) {
+            allowed = allowedMasks.computeIfAbsent(invocation.getMethod(), AllowedRolesAuthorizationManager::mask);
+        }
+
+        Authentication current = authentication.get();
+        if (current == null || !current.isAuthenticated() || current instanceof AnonymousAuthenticationToken) {
+            return DENIED;
+        }
+        return allowed.bits() == ANY_AUTHENTICATED || (Rol.mask(current.getAuthorities()) & allowed.bits()) != 0
+                ? GRANTED
+                : DENIED;
+    }
+
+    // Requerido por la interfaz; Spring Security invoca authorize
+    @Deprecated
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, MethodInvocation invocation) {
+        return (AuthorizationDecision) authorize(authentication, invocation);
+    }
+
+    private static AllowedMask mask(Method method) {
+        AllowedRoles annotation = AnnotationUtils.findAnnotation(method, AllowedRoles.class);
+        if (annotation == null || annotation.value().length == 0) {
+            return new AllowedMask(ANY_AUTHENTICATED);
+        }
+        long mask = 0;
+        for (Rol rol : annotation.value()) {
+            mask |= rol.bit();
+        }
+        return new AllowedMask(mask);
+    }
+
+    // Máscara compilada de un método, sin boxing al consultarla
+    private record AllowedMask(long bits) {
+    }
+
+}
@@ -2,18 +2,21 @@ package com.lp.gestionusuariosroles.config;
 
 import com.lp.gestionusuariosroles.user.repository.User;
 import com.lp.gestionusuariosroles.user.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.ProviderManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+
 @Configuration
 @RequiredArgsConstructor
 public class AppConfig {
@@ -23,6 +26,7 @@ public class AppConfig {
     /**
      * Crea y configura un UserDetailsService personalizado para Spring Security.
      * Carga los detalles del usuario desde la base de datos usando el email como nombre de usuario.
+     * Incluye la versión de sesión del usuario para validar los tokens en el filtro JWT.
      *
      * @return Una implementación de UserDetailsService que busca usuarios por email
      */
@@ -31,26 +35,30 @@ public class AppConfig {
         return username -> {
             User user = repository.findByEmail(username)
                     .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado"));
-            return org.springframework.security.core.userdetails.User
-                    .builder()
-                    .username(username)
-                    .password(user.getPassword())
-                    .authorities(new SimpleGrantedAuthority(user.getRol()))
-                    .disabled(!user.isEnabled())
-                    .build();
+            return new SessionUser(
+                    username,
+                    user.getPassword(),
+                    user.isEnabled(),
+                    user.getAuthorities(),
+                    user.getSessionVersion(),
+                    user.getProfileVersion()
+            );
         };
     }
 
     /**
      * Configura el AuthenticationManager principal para la aplicación.
-     * Utiliza DaoAuthenticationProvider con el UserDetailsService personalizado y el codificador de contraseñas.
+     * Utiliza DaoAuthenticationProvider con el UserDetailsService personalizado (sin caché) y el codificador de contraseñas.
      *
      * @param userDetailsService El servicio para cargar detalles de usuario
      * @param passwordEncoder El codificador de contraseñas a utilizar
      * @return AuthenticationManager configurado para la autenticación
      */
     @Bean
-    public AuthenticationManager authenticationManager(UserDetailsService userDetailsService, PasswordEncoder passwordEncoder) {
+    public AuthenticationManager authenticationManager(
+            @Qualifier("userDetailsService") UserDetailsService userDetailsService,
+            PasswordEncoder passwordEncoder
+    ) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder);
@@ -59,12 +67,22 @@ public class AppConfig {
 
     /**
      * Proporciona el codificador de contraseñas que se usará en la aplicación.
-     * Utiliza el algoritmo BCrypt para el hashing seguro de contraseñas.
+     * Utiliza el algoritmo BCrypt para el hashing seguro de contraseñas, ejecutado en un pool
+     * dedicado y acotado para no saturar los hilos de las solicitudes.
      *
-     * @return Instancia de BCryptPasswordEncoder como implementación de PasswordEncoder
+     * @param meterRegistry Registro de métricas de la aplicación
+     * @param threads Cantidad de hilos del pool de hashing
+     * @param queueCapacity Cantidad máxima de operaciones en espera antes de rechazar con 503
+     * @return Instancia de BoundedPasswordEncoder que delega en BCryptPasswordEncoder
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {return new BCryptPasswordEncoder();}
+    public PasswordEncoder passwordEncoder(
+            MeterRegistry meterRegistry,
+            @Value("${application.security.password-hashing.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int threads,
+            @Value("${application.security.password-hashing.queue-capacity:64}") int queueCapacity
+    ) {
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), threads, queueCapacity, meterRegistry);
+    }
 
 
 }
@@ -0,0 +1,112 @@
+package com.lp.gestionusuariosroles.config;
+
+import com.lp.gestionusuariosroles.exceptions.ServiceOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Decorador de PasswordEncoder que ejecuta el hashing y la verificación de contraseñas (BCrypt)
+ * en un pool de hilos dedicado y de tamaño fijo, con una cola acotada.
+ * -
+ * Así una ráfaga de logins no ocupa todos los núcleos y los endpoints livianos siguen respondiendo.
+ * Si la cola está llena, la solicitud se rechaza de inmediato con {@link ServiceOverloadedException} (503).
+ * -
+ * Métricas: "password.hash.queue" (tamaño de la cola), "password.hash.time" (duración de cada operación)
+ * y "password.hash.rejected" (operaciones rechazadas)
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final Timer hashTimer;
+    private final Counter rejectedCounter;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new NamedThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        this.hashTimer = Timer.builder("password.hash.time")
+                .description("Duración del hashing o verificación de una contraseña")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("password.hash.rejected")
+                .description("Operaciones de hashing rechazadas por saturación")
+                .register(meterRegistry);
+        Gauge.builder("password.hash.queue", executor, pool -> pool.getQueue().size())
+                .description("Operaciones de hashing en espera")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Ejecuta la operación en el pool dedicado y espera su resultado
+     *
+     * @throws ServiceOverloadedException Si la cola del pool está llena
+     */
+    private <T> T submit(Supplier<T> operation) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> hashTimer.record(operation));
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new ServiceOverloadedException("El servidor está ocupado, intente nuevamente en unos segundos");
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Operación de contraseña interrumpida", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "password-hash-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.lp.gestionusuariosroles.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Decorador con caché del UserDetailsService de {@link AppConfig}, usado por el filtro JWT
+ * para no consultar la Base de Datos en cada solicitud autenticada.
+ * -
+ * El login (AuthenticationManager) sigue usando el servicio sin caché, para validar siempre
+ * la contraseña vigente.
+ * -
+ * Cada eliminación incrementa una generación (por franja de emails). Una carga que leyó la Base de Datos
+ * antes de que confirmara un cambio puede terminar después de la eliminación posterior al commit: si la
+ * generación cambió mientras cargaba, los datos que guardó en caché se descartan, para que un usuario
+ * desactivado o con las sesiones revocadas no vuelva a quedar en caché con los datos anteriores.
+ * -
+ * Las métricas se publican como "cache.*" con el nombre "userDetails"
+ */
+@Component
+public class CachingUserDetailsService implements UserDetailsService {
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final UserDetailsService delegate;
+    private final Cache<String, UserDetails> cache;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public CachingUserDetailsService(
+            @Qualifier("userDetailsService") UserDetailsService delegate,
+            MeterRegistry meterRegistry,
+            @Value("${application.security.user-details-cache.max-size:10000}") long maxSize,
+            @Value("${application.security.user-details-cache.ttl:5m}") Duration ttl
+    ) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userDetails");
+    }
+
+    /**
+     * Carga los detalles del usuario desde la caché o, si no están, desde el servicio delegado.
+     * La consulta se hace fuera del bloqueo interno de la caché, para no fijar (pin) el hilo portador
+     * cuando las solicitudes se atienden con hilos virtuales
+     */
+    @Override
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        UserDetails cached = cache.getIfPresent(username);
+        if (cached != null) {
+            return cached;
+        }
+
+        int stripe = stripe(username);
+        long generation = generations.get(stripe);
+        UserDetails loaded = delegate.loadUserByUsername(username);
+        UserDetails previous = cache.asMap().putIfAbsent(username, loaded);
+        if (previous != null) {
+            return previous;
+        }
+        // Se eliminó mientras se cargaba: los datos leídos pueden ser anteriores al cambio
+        if (generations.get(stripe) != generation) {
+            cache.asMap().remove(username, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Elimina de la caché los detalles de un usuario.
+     * Si hay una transacción activa, se elimina también después del commit, para que una solicitud
+     * concurrente no vuelva a guardar en caché los datos anteriores al cambio
+     *
+     * @param email Email (username) del usuario modificado
+     */
+    public void evict(String email) {
+        invalidate(email);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(email);
+                }
+            });
+        }
+    }
+
+    /**
+     * Elimina de la caché los detalles de varios usuarios, con una sola sincronización de transacción
+     * para todo el conjunto (ver {@link #evict(String)})
+     *
+     * @param emails Emails (usernames) de los usuarios modificados
+     */
+    public void evictAll(Collection<String> emails) {
+        invalidateAll(emails);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateAll(emails);
+                }
+            });
+        }
+    }
+
+    // La generación se incrementa antes de eliminar, así una carga concurrente detecta la eliminación
+    private void invalidate(String email) {
+        generations.incrementAndGet(stripe(email));
+        cache.invalidate(email);
+    }
+
+    private void invalidateAll(Collection<String> emails) {
+        for (String email : emails) {
+            generations.incrementAndGet(stripe(email));
+        }
+        cache.invalidateAll(emails);
+    }
+
+    private static int stripe(String email) {
+        int hash = email.hashCode();
+        return (hash ^ (hash >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.lp.gestionusuariosroles.config;
+
+import com.lp.gestionusuariosroles.exceptions.ServiceOverloadedException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Limita cuántas exportaciones (PDF / Excel) se generan al mismo tiempo.
+ * -
+ * Cada exportación carga la tabla completa y arma el documento en memoria. Con hilos virtuales
+ * el pool de Tomcat ya no acota la cantidad de solicitudes simultáneas, así que este límite evita
+ * que una ráfaga de exportaciones agote la memoria. Si no se obtiene un permiso en el tiempo de espera
+ * configurado, la solicitud se rechaza con {@link ServiceOverloadedException} (503)
+ */
+@Component
+public class ExportLimiter {
+
+    private final Semaphore permits;
+    private final long waitMillis;
+
+    public ExportLimiter(
+            @Value("${application.export.max-concurrent:4}") int maxConcurrent,
+            @Value("${application.export.wait:2s}") Duration wait
+    ) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.waitMillis = wait.toMillis();
+    }
+
+    /**
+     * Ejecuta la generación de una exportación cuando hay un permiso disponible
+     *
+     * @param export Generación del documento
+     * @return Bytes del documento generado
+     * @throws ServiceOverloadedException Si no hay permisos disponibles dentro del tiempo de espera
+     */
+    public byte[] run(Supplier<byte[]> export) {
+        try {
+            if (!permits.tryAcquire(waitMillis, TimeUnit.MILLISECONDS)) {
+                throw new ServiceOverloadedException("Hay demasiadas exportaciones en curso, intente nuevamente en unos segundos");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Exportación interrumpida", e);
+        }
+
+        try {
+            return export.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+}
@@ -1,10 +1,11 @@
 package com.lp.gestionusuariosroles.config;
 
-import com.lp.gestionusuariosroles.auth.repository.TokenRepository;
 import com.lp.gestionusuariosroles.auth.service.JwtService;
+import com.lp.gestionusuariosroles.auth.service.TokenDigest;
+import com.lp.gestionusuariosroles.auth.service.TokenStatusCache;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
-import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
@@ -13,14 +14,12 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
-import org.springframework.util.AntPathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.List;
+import java.util.Set;
 
 /**
  * Intercepta las solicitudes entrantes, extrae el JWT de la cookie y lo válida
@@ -35,12 +34,10 @@ import java.util.List;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
-    private final TokenRepository tokenRepository;
+    private final CachingUserDetailsService userDetailsService;
+    private final TokenStatusCache tokenStatusCache;
 
-    private final AntPathMatcher pathMatcher = new AntPathMatcher();
-
-    private static final List<String> PUBLIC_PATHS = List.of(
+    private static final Set<String> PUBLIC_PATHS = Set.of(
             "/auth/login","/auth/login/2fa/verify" ,"/auth/register", "/auth/forgot-password", "/auth/reset-password"
     );
 
@@ -51,28 +48,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             @NonNull FilterChain filterChain
     ) throws ServletException, IOException {
 
-        if(isPublicPath(request)){
-            filterChain.doFilter(request, response);
-            return;
-        }
-
-        String jwt = null;
-        Cookie[] cookies = request.getCookies();
-        if (cookies != null) {
-            for (Cookie cookie : cookies) {
-                if (cookie.getName().equals("USER_SESSION")) {
-                    jwt = cookie.getValue();
-                    break;
-                }
-            }
-        }
+        final String jwt = SessionCookie.getValue(request);
 
         if(jwt == null){
             filterChain.doFilter(request, response);
             return;
         }
 
-        final String userEmail = jwtService.extractUsername(jwt);
+        final Claims claims = jwtService.extractPayload(jwt);
+        request.setAttribute(JwtService.VERIFIED_CLAIMS_ATTRIBUTE, claims);
+        final String userEmail = claims.getSubject();
 
         final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if(userEmail == null || authentication != null){
@@ -82,11 +67,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         final UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
 
-        final boolean isTokenExpiredOrRevoked = tokenRepository.findByToken(jwt)
-                .map(token -> token.getIsExpired() || token.getIsRevoked())
-                .orElse(true);
+        final boolean isSessionCurrent = userDetails instanceof SessionUser sessionUser
+                && jwtService.isSessionVersionCurrent(claims, sessionUser.getSessionVersion());
 
-        if(!isTokenExpiredOrRevoked && jwtService.isTokenValid(jwt, userDetails)){
+        if(isSessionCurrent
+                && !tokenStatusCache.isExpiredOrRevoked(TokenDigest.of(jwt))
+                && jwtService.isTokenValid(claims, userDetails)){
             UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                     userDetails,
                     null,
@@ -99,10 +85,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
-    private boolean isPublicPath(HttpServletRequest request) {
-        String uri = request.getServletPath();
-        return PUBLIC_PATHS.stream()
-                .anyMatch(pattern -> pathMatcher.match(pattern, uri));
+    /**
+     * Las rutas públicas no pasan por el filtro. Son rutas exactas, así que se resuelven
+     * con una búsqueda en un Set en lugar de evaluar un patrón por cada ruta
+     */
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return PUBLIC_PATHS.contains(request.getServletPath());
     }
 
 }
@@ -1,17 +1,23 @@
 package com.lp.gestionusuariosroles.config;
 
-import com.lp.gestionusuariosroles.auth.repository.Token;
 import com.lp.gestionusuariosroles.auth.repository.TokenRepository;
+import com.lp.gestionusuariosroles.auth.service.TokenDigest;
+import com.lp.gestionusuariosroles.auth.service.TokenStatusCache;
 import com.lp.gestionusuariosroles.error.CustomAccessDeniedHandler;
 import com.lp.gestionusuariosroles.error.CustomAuthenticationEntryPoint;
-import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authorization.method.AuthorizationInterceptorsOrder;
+import org.springframework.security.authorization.method.AuthorizationManagerBeforeMethodInterceptor;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -38,9 +44,32 @@ public class SecurityConfig {
     private final JwtAuthenticationFilter jwtAuthFilter;
     private final AuthenticationManager authenticationManager;
     private final TokenRepository tokenRepository;
+    private final TokenStatusCache tokenStatusCache;
     private final CustomAuthenticationEntryPoint customAuthenticationEntryPoint;
     private final CustomAccessDeniedHandler customAccessDeniedHandler;
 
+    @Bean
+    public static AllowedRolesAuthorizationManager allowedRolesAuthorizationManager() {
+        return new AllowedRolesAuthorizationManager();
+    }
+
+    /**
+     * Registra la verificación de {@link AllowedRoles} en los métodos anotados, en el mismo orden que @PreAuthorize.
+     * Los permisos se comparan como máscaras de bits de {@link com.lp.gestionusuariosroles.user.repository.Rol}
+     *
+     * @param manager Manager con las máscaras de roles permitidos por endpoint
+     * @return Interceptor de autorización para los métodos con {@link AllowedRoles}
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor allowedRolesAuthorizationAdvisor(AllowedRolesAuthorizationManager manager) {
+        AuthorizationManagerBeforeMethodInterceptor interceptor = new AuthorizationManagerBeforeMethodInterceptor(
+                AnnotationMatchingPointcut.forMethodAnnotation(AllowedRoles.class), manager
+        );
+        interceptor.setOrder(AuthorizationInterceptorsOrder.PRE_AUTHORIZE.getOrder());
+        return interceptor;
+    }
+
     /**
      * Configura la cadena principal de filtros de seguridad para la aplicación.
      * Define las políticas de seguridad, manejo de excepciones, control de acceso,
@@ -72,7 +101,7 @@ public class SecurityConfig {
                         logout
                                 .logoutUrl("/auth/logout")
                                 .addLogoutHandler(this::logout)
-                                .deleteCookies("USER_SESSION")
+                                .deleteCookies(SessionCookie.NAME)
                                 .invalidateHttpSession(true)
                                 .logoutSuccessHandler((request, response, authentication) -> response.setStatus(HttpStatus.OK.value()))
                 );
@@ -85,7 +114,7 @@ public class SecurityConfig {
      * Maneja el proceso de logout invalidando el token JWT almacenado en las cookies.
      * Realiza las siguientes acciones:
      * 1. Busca la cookie de sesión USER_SESSION
-     * 2. Si existe, marca el token como expirado y revocado en la base de datos
+     * 2. Si existe, marca el token como expirado y revocado en la caché y en la base de datos
      * 3. Limpia el contexto de seguridad de Spring
      *
      * @param request Objeto HttpServletRequest que contiene las cookies
@@ -97,22 +126,11 @@ public class SecurityConfig {
             final HttpServletResponse response,
             final Authentication authentication
     ) {
-        Cookie[] cookies = request.getCookies();
-        if (cookies != null) {
-            for (Cookie cookie : cookies) {
-                if (cookie.getName().equals("USER_SESSION")) {
-                    String jwt = cookie.getValue();
-
-                    final Token storedToken = tokenRepository.findByToken(jwt).orElse(null);
-                    if (storedToken != null) {
-                        storedToken.setIsExpired(true);
-                        storedToken.setIsRevoked(true);
-                        tokenRepository.save(storedToken);
-                    }
-
-                    break;
-                }
-            }
+        String jwt = SessionCookie.getValue(request);
+        if (jwt != null) {
+            byte[] tokenHash = TokenDigest.of(jwt);
+            tokenStatusCache.markRevoked(tokenHash);
+            tokenRepository.revokeByTokenHash(tokenHash);
         }
         SecurityContextHolder.clearContext();
     }
@@ -0,0 +1,63 @@
+package com.lp.gestionusuariosroles.config;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Lectura, creación y eliminación de la cookie de sesión USER_SESSION que contiene el JWT
+ */
+public final class SessionCookie {
+
+    public static final String NAME = "USER_SESSION";
+
+    private SessionCookie() {
+    }
+
+    /**
+     * Busca el valor de la cookie de sesión en la solicitud
+     *
+     * @param request Objeto HttpServletRequest que contiene las cookies
+     * @return El JWT de la cookie, o null si la solicitud no trae la cookie
+     */
+    public static String getValue(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (NAME.equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Envía al navegador la cookie de sesión con el JWT
+     *
+     * @param response Objeto HttpServletResponse
+     * @param jwt El JWT de la sesión
+     * @param maxAgeSeconds Duración de la cookie en segundos
+     */
+    public static void add(HttpServletResponse response, String jwt, int maxAgeSeconds) {
+        Cookie cookie = new Cookie(NAME, jwt);
+        cookie.setHttpOnly(true);
+        cookie.setSecure(false);
+        cookie.setPath("/");
+        cookie.setMaxAge(maxAgeSeconds);
+        response.addCookie(cookie);
+    }
+
+    /**
+     * Invalida la cookie de sesión en el navegador
+     *
+     * @param response Objeto HttpServletResponse
+     */
+    public static void clear(HttpServletResponse response) {
+        Cookie cookie = new Cookie(NAME, "");
+        cookie.setPath("/");
+        cookie.setMaxAge(0);
+        response.addCookie(cookie);
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.lp.gestionusuariosroles.config;
+
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+
+/**
+ * Detalles del usuario que usa Spring Security, junto con la versión de sesión vigente del usuario.
+ * El filtro JWT la compara con la del token para rechazar los tokens emitidos antes de la última revocación.
+ * La versión del perfil indica si la identidad (id, nombre) que viaja en el token sigue vigente
+ */
+@Getter
+public class SessionUser extends org.springframework.security.core.userdetails.User {
+
+    private final int sessionVersion;
+    private final int profileVersion;
+
+    public SessionUser(
+            String username,
+            String password,
+            boolean enabled,
+            Collection<? extends GrantedAuthority> authorities,
+            int sessionVersion,
+            int profileVersion
+    ) {
+        super(username, password, enabled, true, true, true, authorities);
+        this.sessionVersion = sessionVersion;
+        this.profileVersion = profileVersion;
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.lp.gestionusuariosroles.dashboard.controller;
+
+import com.lp.gestionusuariosroles.config.AllowedRoles;
+import com.lp.gestionusuariosroles.dashboard.service.DashboardService;
+import com.lp.gestionusuariosroles.user.repository.Rol;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/v1/dashboard")
+@RequiredArgsConstructor
+public class DashboardController {
+
+    private final DashboardService service;
+
+    @AllowedRoles({Rol.ADMINISTRADOR, Rol.SUPERVISOR})
+    @GetMapping
+    public ResponseEntity<DashboardResponse> getDashboard(
+            @RequestParam(defaultValue = "4") int usersSize,
+            @RequestParam(defaultValue = "5") int logsSize
+    ) {
+        return ResponseEntity.ok(service.getDashboard(usersSize, logsSize));
+    }
+
+}
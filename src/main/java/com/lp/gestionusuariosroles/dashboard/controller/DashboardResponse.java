@@ -0,0 +1,15 @@
+package com.lp.gestionusuariosroles.dashboard.controller;
+
+import com.lp.gestionusuariosroles.activitylog.contoller.ActivityLogDto;
+import com.lp.gestionusuariosroles.user.controller.RolDistributionResponse;
+import com.lp.gestionusuariosroles.user.controller.UserMetricsResponse;
+import com.lp.gestionusuariosroles.user.controller.UserSummaryResponse;
+
+// Datos del panel de administración en una sola respuesta
+public record DashboardResponse(
+        UserMetricsResponse metrics,
+        RolDistributionResponse rolDistribution,
+        UserSummaryResponse users, // Primera página de usuarios
+        ActivityLogDto activityLogs // Primera página de actividad (más reciente primero)
+) {
+}
@@ -0,0 +1,112 @@
+package com.lp.gestionusuariosroles.dashboard.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lp.gestionusuariosroles.activitylog.contoller.ActivityLogDto;
+import com.lp.gestionusuariosroles.activitylog.service.ActivityLogService;
+import com.lp.gestionusuariosroles.dashboard.controller.DashboardResponse;
+import com.lp.gestionusuariosroles.user.controller.RolDistributionResponse;
+import com.lp.gestionusuariosroles.user.controller.UserMetricsResponse;
+import com.lp.gestionusuariosroles.user.controller.UserSummaryResponse;
+import com.lp.gestionusuariosroles.user.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Arma los datos del panel de administración (métricas, distribución por rol, primera página de usuarios
+ * y de actividad) con una sola solicitud.
+ * -
+ * Las lecturas son independientes, así que se ejecutan en paralelo en hilos virtuales.
+ * El resultado se guarda unos segundos en una caché asíncrona: si varios administradores consultan
+ * el panel al mismo tiempo, todos esperan (sin bloquear hilos portadores) el mismo cálculo.
+ * -
+ * Las métricas de la caché se publican como "cache.*" con el nombre "dashboard"
+ */
+@Service
+public class DashboardService {
+
+    private static final int MAX_PAGE_SIZE = 50;
+
+    private final UserService userService;
+    private final ActivityLogService activityLogService;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AsyncCache<Key, DashboardResponse> cache;
+
+    public DashboardService(
+            UserService userService,
+            ActivityLogService activityLogService,
+            MeterRegistry meterRegistry,
+            @Value("${application.dashboard.cache-ttl:5s}") Duration ttl
+    ) {
+        this.userService = userService;
+        this.activityLogService = activityLogService;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(100)
+                .expireAfterWrite(ttl)
+                .executor(executor)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "dashboard");
+    }
+
+    /**
+     * Devuelve los datos del panel, desde la caché o calculándolos en paralelo
+     *
+     * @param usersSize Tamaño de la primera página de usuarios (1 a 50)
+     * @param logsSize Tamaño de la primera página de actividad (1 a 50)
+     * @return Datos del panel en formato {@link DashboardResponse}
+     * @throws IllegalArgumentException Si algún tamaño de página es inválido
+     */
+    public DashboardResponse getDashboard(int usersSize, int logsSize) {
+        if (usersSize < 1 || usersSize > MAX_PAGE_SIZE || logsSize < 1 || logsSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("El tamaño de página debe estar entre 1 y " + MAX_PAGE_SIZE);
+        }
+
+        try {
+            return cache.get(new Key(usersSize, logsSize), (key, cacheExecutor) -> compose(key)).join();
+        } catch (CompletionException e) {
+            // Se propaga la excepción original para que GlobalExceptionHandler la traduzca
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private CompletableFuture<DashboardResponse> compose(Key key) {
+        CompletableFuture<UserMetricsResponse> metrics =
+                CompletableFuture.supplyAsync(userService::getUsersMetrics, executor);
+        CompletableFuture<RolDistributionResponse> rolDistribution =
+                CompletableFuture.supplyAsync(userService::getRolDistribution, executor);
+        CompletableFuture<UserSummaryResponse> users =
+                CompletableFuture.supplyAsync(() -> userService.getAllUsers(0, key.usersSize()), executor);
+        CompletableFuture<ActivityLogDto> activityLogs =
+                CompletableFuture.supplyAsync(() -> activityLogService.getAllLogs(0, key.logsSize()), executor);
+
+        return CompletableFuture.allOf(metrics, rolDistribution, users, activityLogs)
+                .thenApply(done -> new DashboardResponse(
+                        metrics.join(),
+                        rolDistribution.join(),
+                        users.join(),
+                        activityLogs.join()
+                ));
+    }
+
+    @PreDestroy
+    void close() {
+        executor.shutdown();
+    }
+
+    private record Key(int usersSize, int logsSize) {
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.lp.gestionusuariosroles.email.repository;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(
+        name = "email_outbox",
+        indexes = @Index(name = "idx_email_outbox_status_next_attempt", columnList = "status, next_attempt_at")
+)
+public class EmailOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String toEmail;
+
+    @Column(nullable = false)
+    private String subject;
+
+    // Puede contener enlaces de recuperación o códigos 2FA: se borra cuando el correo llega a un estado final
+    @Column(columnDefinition = "TEXT")
+    private String html;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    @Builder.Default
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    // Mientras está en SENDING, es el vencimiento de la reserva: después otra ejecución puede reclamarlo
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    // Los correos con vigencia limitada (códigos 2FA, enlaces de recuperación) no se envían después de esta fecha
+    @Column
+    private Instant expiresAt;
+
+    @Column(nullable = false)
+    @CreationTimestamp
+    private Instant createdAt;
+
+    @Column
+    private Instant sentAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    public enum Status {
+        PENDING,
+        SENDING,
+        SENT,
+        FAILED,
+        EXPIRED
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.lp.gestionusuariosroles.email.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    // Bloquea el lote para que otra instancia no reclame los mismos correos (incluye reservas vencidas)
+    @Query(value = """
+      select * from email_outbox\s
+      where status in ('PENDING', 'SENDING') and next_attempt_at <= :now\s
+      order by id\s
+      limit :batchSize\s
+      for update skip locked
+      """, nativeQuery = true)
+    List<EmailOutbox> lockPendingBatch(Instant now, int batchSize);
+
+    // Las actualizaciones del resultado solo se aplican si la reserva sigue siendo la misma (mismo intento)
+    @Modifying
+    @Query(value = """
+      update email_outbox\s
+      set status = :status, sent_at = :sentAt, last_error = :error, html = null\s
+      where id = :id and status = 'SENDING' and attempts = :attempts
+      """, nativeQuery = true)
+    int finish(Long id, int attempts, String status, Instant sentAt, String error);
+
+    @Modifying
+    @Query(value = """
+      update email_outbox\s
+      set status = 'PENDING', next_attempt_at = :nextAttemptAt, last_error = :error\s
+      where id = :id and status = 'SENDING' and attempts = :attempts
+      """, nativeQuery = true)
+    int retry(Long id, int attempts, Instant nextAttemptAt, String error);
+
+    // Devuelve el correo a pendiente sin consumir el intento (no se llegó a enviar)
+    @Modifying
+    @Query(value = """
+      update email_outbox\s
+      set status = 'PENDING', next_attempt_at = :nextAttemptAt, attempts = attempts - 1\s
+      where id = :id and status = 'SENDING' and attempts = :attempts
+      """, nativeQuery = true)
+    int release(Long id, int attempts, Instant nextAttemptAt);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+      delete from email_outbox where id in (\s
+        select id from email_outbox\s
+        where status in ('SENT', 'FAILED', 'EXPIRED') and created_at < :cutoff\s
+        limit :batchSize\s
+      )
+      """, nativeQuery = true)
+    int deleteFinishedBatch(Instant cutoff, int batchSize);
+
+}
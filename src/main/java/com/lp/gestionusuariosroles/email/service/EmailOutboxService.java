@@ -0,0 +1,93 @@
+package com.lp.gestionusuariosroles.email.service;
+
+import com.lp.gestionusuariosroles.email.repository.EmailOutbox;
+import com.lp.gestionusuariosroles.email.repository.EmailOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+
+@Slf4j
+@Service
+public class EmailOutboxService {
+
+    private final EmailOutboxRepository repository;
+    private final Duration retention;
+    private final int purgeBatchSize;
+
+    public EmailOutboxService(
+            EmailOutboxRepository repository,
+            @Value("${email.outbox.retention:7d}") Duration retention,
+            @Value("${email.outbox.purge-batch-size:1000}") int purgeBatchSize
+    ) {
+        this.repository = repository;
+        this.retention = retention;
+        this.purgeBatchSize = purgeBatchSize;
+    }
+
+    /**
+     * Encola un correo en la tabla email_outbox, dentro de la transacción de quien lo llama.
+     * El correo se envía después en segundo plano ({@link EmailSenderService}), por lo que
+     * la solicitud no espera al proveedor de correo
+     *
+     * @param toEmail Destinatario del correo
+     * @param subject Asunto del correo
+     * @param html Contenido HTML del correo
+     */
+    @Transactional
+    public void enqueue(String toEmail, String subject, String html) {
+        enqueue(toEmail, subject, html, null);
+    }
+
+    /**
+     * Encola un correo con vigencia limitada: si no se pudo enviar dentro de ese tiempo,
+     * se descarta (EXPIRED) en lugar de seguir reintentándolo
+     *
+     * @param toEmail Destinatario del correo
+     * @param subject Asunto del correo
+     * @param html Contenido HTML del correo
+     * @param ttl Vigencia del correo desde ahora, o null si no vence
+     */
+    @Transactional
+    public void enqueue(String toEmail, String subject, String html, Duration ttl) {
+        Instant now = Instant.now();
+        repository.save(
+                EmailOutbox.builder()
+                        .toEmail(toEmail)
+                        .subject(subject)
+                        .html(html)
+                        .nextAttemptAt(now)
+                        .expiresAt(ttl != null ? now.plus(ttl) : null)
+                        .build()
+        );
+    }
+
+    /**
+     * Elimina, en lotes acotados, los correos enviados, fallidos o vencidos con más antigüedad que la retención
+     *
+     * @return Cantidad total de correos eliminados
+     */
+    @Scheduled(
+            initialDelayString = "${email.outbox.purge-initial-delay:PT1M}",
+            fixedDelayString = "${email.outbox.purge-interval:PT1H}"
+    )
+    public int purgeFinishedEmails() {
+        Instant cutoff = Instant.now().minus(retention);
+        int total = 0;
+        int deleted;
+        do {
+            deleted = repository.deleteFinishedBatch(cutoff, purgeBatchSize);
+            total += deleted;
+        } while (deleted == purgeBatchSize);
+
+        if (total > 0) {
+            log.info("Se eliminaron {} correos terminados de la bandeja de salida", total);
+        }
+        return total;
+    }
+
+}
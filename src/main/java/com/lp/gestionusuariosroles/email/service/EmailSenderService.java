@@ -0,0 +1,298 @@
+package com.lp.gestionusuariosroles.email.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lp.gestionusuariosroles.email.repository.EmailOutbox;
+import com.lp.gestionusuariosroles.email.repository.EmailOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Envía en segundo plano los correos pendientes de la tabla email_outbox usando la API de Resend.
+ * -
+ * Cada ejecución reserva un lote de correos en una transacción corta (FOR UPDATE SKIP LOCKED, pasan a SENDING
+ * con una reserva que vence) y la confirma antes de llamar al proveedor: ni la conexión a la Base de Datos ni los
+ * bloqueos de filas se mantienen durante las llamadas HTTP. Si la instancia cae a mitad del envío, los correos
+ * se vuelven a reclamar al vencer la reserva.
+ * -
+ * Cada correo se envía por separado con una clave de idempotencia propia ("email-outbox-{id}"), así un
+ * reintento tras un fallo al guardar el resultado no duplica el envío, y el error de un destinatario no
+ * afecta al resto del lote (la API de lotes de Resend rechaza el lote completo y solo admite una clave por lote).
+ * Los resultados se guardan en una segunda transacción, solo si la reserva sigue vigente.
+ * -
+ * Un 4xx es un error permanente del correo (se marca como fallido sin reintentar); un 5xx o un error de red
+ * se reintenta con backoff exponencial hasta un máximo de intentos, y tras varios seguidos se abre el circuito.
+ * Un 429 pospone el resto del lote sin consumir intentos ni abrir el circuito.
+ * Los correos con vencimiento (expiresAt) no se envían ni reintentan después de esa fecha.
+ * -
+ * La URL de la API es configurable (resend.api.url) para poder probar el envío contra un servidor HTTP local
+ */
+@Slf4j
+@Service
+public class EmailSenderService {
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final EmailOutboxRepository repository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final OkHttpClient client;
+
+    private final String emailsUrl;
+    private final String resendApiKey;
+    private final String fromEmail;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+    private final int circuitFailureThreshold;
+    private final Duration circuitOpenDuration;
+
+    // Solo las modifica el hilo del scheduler
+    private volatile int consecutiveFailures = 0;
+    private volatile Instant circuitOpenUntil = Instant.EPOCH;
+
+    public EmailSenderService(
+            EmailOutboxRepository repository,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${resend.api.url:https://api.resend.com}") String resendApiUrl,
+            @Value("${resend.api.key}") String resendApiKey,
+            @Value("${resend.from.email}") String fromEmail,
+            @Value("${email.outbox.batch-size:50}") int batchSize,
+            @Value("${email.outbox.max-attempts:8}") int maxAttempts,
+            @Value("${email.outbox.initial-backoff:10s}") Duration initialBackoff,
+            @Value("${email.outbox.max-backoff:30m}") Duration maxBackoff,
+            @Value("${email.outbox.lease:15m}") Duration lease,
+            @Value("${email.outbox.circuit.failure-threshold:5}") int circuitFailureThreshold,
+            @Value("${email.outbox.circuit.open-duration:1m}") Duration circuitOpenDuration,
+            @Value("${email.outbox.http-timeout:10s}") Duration httpTimeout
+    ) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.client = new OkHttpClient.Builder()
+                .connectTimeout(httpTimeout)
+                .readTimeout(httpTimeout)
+                .writeTimeout(httpTimeout)
+                .build();
+        this.emailsUrl = resendApiUrl + "/emails";
+        this.resendApiKey = resendApiKey;
+        this.fromEmail = fromEmail;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.lease = lease;
+        this.circuitFailureThreshold = circuitFailureThreshold;
+        this.circuitOpenDuration = circuitOpenDuration;
+    }
+
+    /**
+     * Envía los correos pendientes, lote por lote, mientras haya correos listos y el circuito esté cerrado
+     */
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval:PT2S}")
+    public void drainOutbox() {
+        boolean fullBatch;
+        do {
+            if (Instant.now().isBefore(circuitOpenUntil)) {
+                return;
+            }
+            List<Claimed> batch = transactionTemplate.execute(status -> claimNextBatch(Instant.now()));
+            if (batch == null || batch.isEmpty()) {
+                return;
+            }
+            List<Outcome> outcomes = send(batch);
+            transactionTemplate.executeWithoutResult(status -> outcomes.forEach(this::record));
+            fullBatch = batch.size() == batchSize;
+        } while (fullBatch);
+    }
+
+    /**
+     * Reserva el siguiente lote de correos pendientes (o con la reserva vencida) y consume un intento de cada uno.
+     * Los que vencieron o ya agotaron sus intentos se cierran sin enviarse
+     *
+     * @return Correos reservados para enviar
+     */
+    private List<Claimed> claimNextBatch(Instant now) {
+        List<EmailOutbox> locked = repository.lockPendingBatch(now, batchSize);
+        List<Claimed> claimed = new ArrayList<>(locked.size());
+        for (EmailOutbox email : locked) {
+            if (email.getExpiresAt() != null && !email.getExpiresAt().isAfter(now)) {
+                email.setStatus(EmailOutbox.Status.EXPIRED);
+                email.setHtml(null);
+            } else if (email.getAttempts() >= maxAttempts) {
+                email.setStatus(EmailOutbox.Status.FAILED);
+                email.setHtml(null);
+            } else {
+                email.setStatus(EmailOutbox.Status.SENDING);
+                email.setAttempts(email.getAttempts() + 1);
+                email.setNextAttemptAt(now.plus(lease));
+                claimed.add(new Claimed(
+                        email.getId(), email.getAttempts(), email.getToEmail(), email.getSubject(),
+                        email.getHtml(), email.getExpiresAt()
+                ));
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Envía cada correo reservado, fuera de cualquier transacción, y clasifica el resultado
+     */
+    private List<Outcome> send(List<Claimed> batch) {
+        List<Outcome> outcomes = new ArrayList<>(batch.size());
+        Instant deferredUntil = null;
+        for (Claimed email : batch) {
+            Instant now = Instant.now();
+            if (deferredUntil == null && now.isBefore(circuitOpenUntil)) {
+                deferredUntil = circuitOpenUntil;
+            }
+            if (deferredUntil != null) {
+                outcomes.add(new Outcome(email, Result.DEFERRED, null, deferredUntil));
+                continue;
+            }
+
+            Outcome outcome = post(email);
+            outcomes.add(outcome);
+            switch (outcome.result()) {
+                case SENT, PERMANENT_FAILURE -> consecutiveFailures = 0;
+                case TRANSIENT_FAILURE -> {
+                    if (++consecutiveFailures >= circuitFailureThreshold) {
+                        circuitOpenUntil = now.plus(circuitOpenDuration);
+                        log.warn("Circuito de envío de correos abierto hasta {}", circuitOpenUntil);
+                    }
+                }
+                case DEFERRED -> deferredUntil = outcome.retryAt();
+            }
+        }
+        return outcomes;
+    }
+
+    /**
+     * Envía un correo a la API de Resend con su clave de idempotencia
+     */
+    private Outcome post(Claimed email) {
+        try {
+            Request request = new Request.Builder()
+                    .url(emailsUrl)
+                    .post(RequestBody.create(objectMapper.writeValueAsString(
+                            new ResendEmail(fromEmail, List.of(email.toEmail()), email.subject(), email.html())), JSON))
+                    .addHeader("Authorization", "Bearer " + resendApiKey)
+                    .addHeader("Idempotency-Key", "email-outbox-" + email.id())
+                    .build();
+
+            try (Response response = client.newCall(request).execute()) {
+                int code = response.code();
+                if (response.isSuccessful()) {
+                    return new Outcome(email, Result.SENT, null, null);
+                }
+                ResponseBody body = response.body();
+                String error = "Error al enviar el correo (" + code + "): " + (body != null ? body.string() : "");
+                if (code == 429) {
+                    return new Outcome(email, Result.DEFERRED, null, Instant.now().plus(retryAfter(response)));
+                }
+                // 409: otra solicitud con la misma clave de idempotencia sigue en curso
+                if (code >= 500 || code == 409) {
+                    log.warn("Error transitorio al enviar el correo {}: {}", email.id(), error);
+                    return new Outcome(email, Result.TRANSIENT_FAILURE, error, null);
+                }
+                log.warn("El proveedor rechazó el correo {}: {}", email.id(), error);
+                return new Outcome(email, Result.PERMANENT_FAILURE, error, null);
+            }
+        } catch (IOException e) {
+            log.warn("Error al enviar el correo {}: {}", email.id(), e.getMessage());
+            return new Outcome(email, Result.TRANSIENT_FAILURE, e.getMessage(), null);
+        }
+    }
+
+    /**
+     * Guarda el resultado de un correo, si su reserva no fue reclamada por otra ejecución
+     */
+    private void record(Outcome outcome) {
+        Claimed email = outcome.email();
+        String error = truncate(outcome.error());
+        switch (outcome.result()) {
+            case SENT -> repository.finish(email.id(), email.attempts(), EmailOutbox.Status.SENT.name(), Instant.now(), null);
+            case PERMANENT_FAILURE -> repository.finish(email.id(), email.attempts(), EmailOutbox.Status.FAILED.name(), null, error);
+            case DEFERRED -> repository.release(email.id(), email.attempts(), outcome.retryAt());
+            case TRANSIENT_FAILURE -> {
+                Instant now = Instant.now();
+                Duration backoff = initialBackoff.multipliedBy(1L << Math.min(email.attempts() - 1, 20));
+                Instant nextAttemptAt = now.plus(backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff);
+                if (email.attempts() >= maxAttempts) {
+                    repository.finish(email.id(), email.attempts(), EmailOutbox.Status.FAILED.name(), null, error);
+                } else if (email.expiresAt() != null && !nextAttemptAt.isBefore(email.expiresAt())) {
+                    repository.finish(email.id(), email.attempts(), EmailOutbox.Status.EXPIRED.name(), null, error);
+                } else {
+                    repository.retry(email.id(), email.attempts(), nextAttemptAt, error);
+                }
+            }
+        }
+    }
+
+    private Duration retryAfter(Response response) {
+        String header = response.header("Retry-After");
+        if (header != null) {
+            try {
+                return Duration.ofSeconds(Math.max(1, Long.parseLong(header.trim())));
+            } catch (NumberFormatException ignored) {
+                // Fecha HTTP u otro formato: se usa el backoff inicial
+            }
+        }
+        return initialBackoff;
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    // Correo reservado: copia de los datos necesarios para enviarlo y guardar su resultado fuera de la transacción
+    private record Claimed(
+            Long id,
+            int attempts,
+            String toEmail,
+            String subject,
+            String html,
+            Instant expiresAt
+    ) {
+    }
+
+    private enum Result {
+        SENT,
+        PERMANENT_FAILURE,
+        TRANSIENT_FAILURE,
+        // No se envió (circuito abierto o límite de solicitudes): vuelve a pendiente sin consumir el intento
+        DEFERRED
+    }
+
+    private record Outcome(
+            Claimed email,
+            Result result,
+            String error,
+            Instant retryAt
+    ) {
+    }
+
+    // Formato de un correo en la API de Resend
+    private record ResendEmail(
+            String from,
+            List<String> to,
+            String subject,
+            String html
+    ) {
+    }
+
+}
@@ -1,11 +1,17 @@
 package com.lp.gestionusuariosroles.exceptions;
 
 import com.lp.gestionusuariosroles.error.ErrorResponse;
+import com.lp.gestionusuariosroles.user.repository.User;
 import jakarta.persistence.EntityNotFoundException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
@@ -41,6 +47,44 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse(404, "Not Found", e.getMessage()));
     }
 
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ErrorResponse> handleServiceOverloadedException(ServiceOverloadedException e){
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ErrorResponse(503, "Service Unavailable", e.getMessage()));
+    }
+
+    // El pool de conexiones no entregó una conexión a tiempo: el cliente puede reintentar
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<ErrorResponse> handleConnectionPoolExhausted(RuntimeException e){
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ErrorResponse(503, "Service Unavailable", "El servidor está ocupado, intente nuevamente en unos segundos"));
+    }
+
+    // Un registro concurrente ocupó el mismo email o DNI entre la verificación y el guardado (índice único).
+    // Cualquier otra violación (FK, not null, otras restricciones) se relanza y la maneja el tratamiento por defecto
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<ErrorResponse> handleDataIntegrityViolationException(DataIntegrityViolationException e){
+        String constraint = e.getCause() instanceof ConstraintViolationException violation ? violation.getConstraintName() : null;
+        if (User.EMAIL_UNIQUE_CONSTRAINT.equalsIgnoreCase(constraint)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ErrorResponse(409, "Conflict", "El email ya está registrado con otro usuario"));
+        }
+        if (User.DNI_UNIQUE_CONSTRAINT.equalsIgnoreCase(constraint)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ErrorResponse(409, "Conflict", "El dni ya está registrado con otro usuario"));
+        }
+        throw e;
+    }
+
+    @ExceptionHandler(TooManyAttemptsException.class)
+    public ResponseEntity<ErrorResponse> handleTooManyAttemptsException(TooManyAttemptsException e){
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(new ErrorResponse(429, "Too Many Requests", e.getMessage()));
+    }
+
     @ExceptionHandler(BadCredentialsException.class)
     public ResponseEntity<ErrorResponse> handleBadCredentialsException(BadCredentialsException e){
         return ResponseEntity.badRequest().body(new ErrorResponse(400, "Bad Request", e.getMessage()));
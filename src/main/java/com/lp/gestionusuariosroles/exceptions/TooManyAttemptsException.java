@@ -0,0 +1,15 @@
+package com.lp.gestionusuariosroles.exceptions;
+
+import lombok.Getter;
+
+@Getter
+public class TooManyAttemptsException extends RuntimeException {
+
+    // Segundos que el cliente debe esperar antes de reintentar
+    private final long retryAfterSeconds;
+
+    public TooManyAttemptsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
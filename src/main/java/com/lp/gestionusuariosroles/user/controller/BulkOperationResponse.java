@@ -0,0 +1,7 @@
+package com.lp.gestionusuariosroles.user.controller;
+
+// Resultado de una operación masiva sobre usuarios
+public record BulkOperationResponse(
+        int affected // Usuarios modificados o eliminados
+) {
+}
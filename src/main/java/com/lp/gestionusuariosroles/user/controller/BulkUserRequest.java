@@ -0,0 +1,11 @@
+package com.lp.gestionusuariosroles.user.controller;
+
+import java.util.List;
+
+// Usuarios afectados por una operación masiva: por ids, por filtro o ambos (los criterios se combinan)
+public record BulkUserRequest(
+        List<Long> userIds,
+        String rol,
+        Boolean estado
+) {
+}
@@ -0,0 +1,9 @@
+package com.lp.gestionusuariosroles.user.controller;
+
+import java.util.List;
+
+// Usuarios a los que se les cerrarán todas las sesiones
+public record ForceLogoutRequest(
+        List<Long> userIds
+) {
+}
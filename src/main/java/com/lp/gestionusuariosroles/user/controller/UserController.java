@@ -1,8 +1,14 @@
 package com.lp.gestionusuariosroles.user.controller;
 
+import com.lp.gestionusuariosroles.activitylog.contoller.ActivityLogInterceptor;
 import com.lp.gestionusuariosroles.activitylog.service.LogActivity;
+import com.lp.gestionusuariosroles.config.AllowedRoles;
+import com.lp.gestionusuariosroles.config.ExportLimiter;
+import com.lp.gestionusuariosroles.user.repository.Rol;
 import com.lp.gestionusuariosroles.user.service.GenerateUsersExcelService;
 import com.lp.gestionusuariosroles.user.service.GenerateUsersPdfService;
+import com.lp.gestionusuariosroles.user.service.UserBulkService;
+import com.lp.gestionusuariosroles.user.service.UserImportService;
 import com.lp.gestionusuariosroles.user.service.UserService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -11,8 +17,8 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
 @RestController
 @RequestMapping("/api/v1/users")
@@ -22,8 +28,11 @@ public class UserController {
     private final UserService service;
     private final GenerateUsersPdfService pdfService;
     private final GenerateUsersExcelService excelService;
+    private final ExportLimiter exportLimiter;
+    private final UserImportService importService;
+    private final UserBulkService bulkService;
 
-    @PreAuthorize("hasAnyAuthority('ADMINISTRADOR','SUPERVISOR')")
+    @AllowedRoles({Rol.ADMINISTRADOR, Rol.SUPERVISOR})
     @GetMapping
     public ResponseEntity<UserSummaryResponse> getAllUsers(
             @RequestParam(defaultValue = "0") int page,
@@ -32,28 +41,50 @@ public class UserController {
         return ResponseEntity.ok(service.getAllUsers(page, size));
     }
 
-    @PreAuthorize("hasAnyAuthority('ADMINISTRADOR','SUPERVISOR')")
+    @AllowedRoles({Rol.ADMINISTRADOR, Rol.SUPERVISOR})
+    @GetMapping("/cursor")
+    public ResponseEntity<UserCursorResponse> getUsersByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "ID") UserListSort sort,
+            @RequestParam(defaultValue = "false") boolean includeTotal
+    ) {
+        return ResponseEntity.ok(service.getUsersByCursor(cursor, size, sort, includeTotal));
+    }
+
+    @AllowedRoles({Rol.ADMINISTRADOR, Rol.SUPERVISOR})
+    @GetMapping("/search")
+    public ResponseEntity<UserSearchResponse> searchUsers(
+            @RequestParam String q,
+            @RequestParam(required = false) String rol,
+            @RequestParam(required = false) Boolean estado,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        return ResponseEntity.ok(service.searchUsers(q, rol, estado, limit));
+    }
+
+    @AllowedRoles({Rol.ADMINISTRADOR, Rol.SUPERVISOR})
     @GetMapping("/{id}")
     public ResponseEntity<UserDataResponse> getUserById(@PathVariable Long id){
         return ResponseEntity.ok(service.getUserById(id));
     }
 
-    @PreAuthorize("isAuthenticated()")
+    @AllowedRoles
     @GetMapping("/session/user-data")
     public ResponseEntity<UserDataResponse> getUserInSessionData(HttpServletRequest request) {
         return ResponseEntity.ok(service.getUserInSessionData(request));
     }
 
-    @PreAuthorize("hasAnyAuthority('ADMINISTRADOR', 'SUPERVISOR')")
+    @AllowedRoles({Rol.ADMINISTRADOR, Rol.SUPERVISOR})
     @GetMapping("/metrics")
     public ResponseEntity<UserMetricsResponse> getUserMetrics() {
         return ResponseEntity.ok(service.getUsersMetrics());
     }
 
-    @PreAuthorize("hasAnyAuthority('ADMINISTRADOR', 'SUPERVISOR')")
+    @AllowedRoles({Rol.ADMINISTRADOR, Rol.SUPERVISOR})
     @GetMapping("/export/pdf")
     public ResponseEntity<byte[]> exportUsersPdf() {
-        byte[] pdfBytes = pdfService.generateUsersPdf();
+        byte[] pdfBytes = exportLimiter.run(pdfService::generateUsersPdf);
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_PDF);
@@ -61,10 +92,10 @@ public class UserController {
         return new ResponseEntity<>(pdfBytes, headers, HttpStatus.OK);
     }
 
-    @PreAuthorize("hasAnyAuthority('ADMINISTRADOR', 'SUPERVISOR')")
+    @AllowedRoles({Rol.ADMINISTRADOR, Rol.SUPERVISOR})
     @GetMapping("/export/excel")
     public ResponseEntity<byte[]> exportUsersExcel() {
-        byte[] excelBytes = excelService.generateUsersExcel();
+        byte[] excelBytes = exportLimiter.run(excelService::generateUsersExcel);
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
@@ -73,46 +104,85 @@ public class UserController {
         return new ResponseEntity<>(excelBytes, headers, HttpStatus.OK);
     }
 
+    @LogActivity(action = "USERS_IMPORTED", description = "Importó usuarios desde un archivo")
+    @AllowedRoles(Rol.ADMINISTRADOR)
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<UserImportResponse> importUsers(@RequestParam("file") MultipartFile file) {
+        return ResponseEntity.ok(importService.importUsers(file));
+    }
+
     @LogActivity(action = "USER_UPDATED", description = "Actualizó la información de un usuario")
-    @PreAuthorize("hasAnyAuthority('ADMINISTRADOR','SUPERVISOR')")
+    @AllowedRoles({Rol.ADMINISTRADOR, Rol.SUPERVISOR})
     @PatchMapping("/{id}")
     public ResponseEntity<UserDataResponse> updateUser(@PathVariable Long id, @RequestBody UserDto userDto){
         return ResponseEntity.ok(service.updateUser(id, userDto));
     }
 
-    @PreAuthorize("isAuthenticated()")
+    @AllowedRoles
     @PatchMapping("/session/{id}")
     public ResponseEntity<UserDataResponse> updateUserInSession(@PathVariable Long id, @RequestBody UserDto userDto){
         return ResponseEntity.ok(service.updateUser(id, userDto));
     }
 
-    @PreAuthorize("hasAnyAuthority('ADMINISTRADOR','SUPERVISOR')")
+    @AllowedRoles({Rol.ADMINISTRADOR, Rol.SUPERVISOR})
     @GetMapping("/reportes/rol-distribution")
     public ResponseEntity<RolDistributionResponse> getRolDistribution() {
         return ResponseEntity.ok(service.getRolDistribution());
     }
 
     @LogActivity(action = "CHANGE_USER_STATE", description = "Cambio el estado de un usuario")
-    @PreAuthorize("hasAnyAuthority('ADMINISTRADOR','SUPERVISOR')")
+    @AllowedRoles({Rol.ADMINISTRADOR, Rol.SUPERVISOR})
     @PatchMapping("/estado/{id}/{nuevoEstado}")
     public ResponseEntity<Void> changeEstado(@PathVariable Long id, @PathVariable Boolean nuevoEstado){
         service.changeEstado(id, nuevoEstado);
         return ResponseEntity.noContent().build();
     }
 
-    @PreAuthorize("isAuthenticated()")
+    @LogActivity(action = "CHANGE_USERS_STATE", description = "Cambió el estado de varios usuarios")
+    @AllowedRoles({Rol.ADMINISTRADOR, Rol.SUPERVISOR})
+    @PatchMapping("/estado/bulk/{nuevoEstado}")
+    public ResponseEntity<BulkOperationResponse> changeEstadoBulk(
+            @PathVariable Boolean nuevoEstado,
+            @RequestBody BulkUserRequest bulkRequest,
+            HttpServletRequest request
+    ) {
+        BulkOperationResponse result = bulkService.changeEstado(
+                bulkRequest, nuevoEstado, service.getSessionIdentity(request).userId()
+        );
+        request.setAttribute(ActivityLogInterceptor.DETAIL_ATTRIBUTE, result.affected() + " usuarios");
+        return ResponseEntity.ok(result);
+    }
+
+    @LogActivity(action = "FORCE_LOGOUT", description = "Cerró todas las sesiones de uno o más usuarios")
+    @AllowedRoles(Rol.ADMINISTRADOR)
+    @PostMapping("/sessions/force-logout")
+    public ResponseEntity<Void> forceLogout(@RequestBody ForceLogoutRequest request){
+        service.forceLogout(request.userIds());
+        return ResponseEntity.noContent().build();
+    }
+
+    @AllowedRoles
     @PatchMapping("/password")
     public ResponseEntity<UpdatePasswordResponse> changePassword(HttpServletRequest request, @RequestBody UpdatePasswordRequest passwordRequest){
         return ResponseEntity.ok(service.updatePassword(request, passwordRequest));
     }
 
     @LogActivity(action = "USER_DELETED", description = "Eliminó un usuario")
-    @PreAuthorize("hasAnyAuthority('ADMINISTRADOR','SUPERVISOR')")
+    @AllowedRoles({Rol.ADMINISTRADOR, Rol.SUPERVISOR})
     @DeleteMapping("/delete/{id}")
     public ResponseEntity<Void> deleteUser(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response){
         service.deleteUser(id, request, response);
         return ResponseEntity.noContent().build();
     }
 
+    @LogActivity(action = "USERS_DELETED", description = "Eliminó varios usuarios")
+    @AllowedRoles({Rol.ADMINISTRADOR, Rol.SUPERVISOR})
+    @PostMapping("/delete/bulk")
+    public ResponseEntity<BulkOperationResponse> deleteUsersBulk(@RequestBody BulkUserRequest bulkRequest, HttpServletRequest request){
+        BulkOperationResponse result = bulkService.deleteUsers(bulkRequest, service.getSessionIdentity(request).userId());
+        request.setAttribute(ActivityLogInterceptor.DETAIL_ATTRIBUTE, result.affected() + " usuarios");
+        return ResponseEntity.ok(result);
+    }
+
 
 }
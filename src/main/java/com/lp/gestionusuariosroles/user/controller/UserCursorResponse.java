@@ -0,0 +1,12 @@
+package com.lp.gestionusuariosroles.user.controller;
+
+import java.util.List;
+
+// Formato en el que se devolverá una página de usuarios recorrida por cursor
+public record UserCursorResponse(
+        List<UserSummaryResponse.UserSummary> content,
+        String nextCursor, // null si no hay más páginas
+        Long totalElements, // null si no se solicitó el total
+        int size
+) {
+}
@@ -0,0 +1,15 @@
+package com.lp.gestionusuariosroles.user.controller;
+
+import java.util.List;
+
+// Resultado de una importación masiva de usuarios, con el detalle de las filas rechazadas
+public record UserImportResponse(
+        int totalRows, // Filas de datos leídas (sin contar encabezados ni filas vacías)
+        int imported,
+        List<RowError> errors
+) {
+    public record RowError(
+            int row, // Número de fila en el archivo (la fila 1 es la de encabezados)
+            String message
+    ){}
+}
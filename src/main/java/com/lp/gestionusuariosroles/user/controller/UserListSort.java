@@ -0,0 +1,7 @@
+package com.lp.gestionusuariosroles.user.controller;
+
+// Orden disponible para la lista de usuarios por cursor; el id desempata y hace el orden único
+public enum UserListSort {
+    ID,
+    APELLIDOS
+}
@@ -0,0 +1,10 @@
+package com.lp.gestionusuariosroles.user.controller;
+
+import java.util.List;
+
+// Formato en el que se devolverán los resultados de la búsqueda de usuarios
+public record UserSearchResponse(
+        List<UserSummaryResponse.UserSummary> content,
+        int totalMatches // Total de coincidencias, aunque solo se devuelvan las primeras
+) {
+}
@@ -0,0 +1,113 @@
+package com.lp.gestionusuariosroles.user.repository;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registro de los roles de la aplicación.
+ * -
+ * Cada rol tiene un código compacto (el que se guarda en users.rol_code), un bit para las verificaciones
+ * de permisos (ver {@link com.lp.gestionusuariosroles.config.AllowedRolesAuthorizationManager}) y es su propia
+ * autoridad de Spring Security: una única instancia inmutable, sin crear objetos en cada solicitud.
+ * -
+ * Los códigos no deben cambiar una vez guardados; un rol nuevo se agrega con el siguiente código libre (menor a 64)
+ */
+public enum Rol implements GrantedAuthority {
+
+    ADMINISTRADOR(1),
+    SUPERVISOR(2),
+    EGRESADO(3);
+
+    private static final Map<String, Rol> BY_NAME = new HashMap<>();
+    private static final Rol[] BY_CODE;
+
+    static {
+        int maxCode = 0;
+        for (Rol rol : values()) {
+            BY_NAME.put(rol.name(), rol);
+            maxCode = Math.max(maxCode, rol.code);
+        }
+        BY_CODE = new Rol[maxCode + 1];
+        for (Rol rol : values()) {
+            BY_CODE[rol.code] = rol;
+        }
+    }
+
+    private final short code;
+    private final long bit;
+    private final List<Rol> authorities;
+
+    Rol(int code) {
+        this.code = (short) code;
+        this.bit = 1L << code;
+        this.authorities = List.of(this);
+    }
+
+    public short code() {
+        return code;
+    }
+
+    public long bit() {
+        return bit;
+    }
+
+    /**
+     * Autoridades de un usuario con este rol (lista inmutable compartida)
+     */
+    public List<Rol> authorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getAuthority() {
+        return name();
+    }
+
+    /**
+     * @param name Nombre del rol (por ejemplo, "ADMINISTRADOR")
+     * @return El rol con ese nombre
+     * @throws IllegalArgumentException Si el rol no existe
+     */
+    public static Rol fromName(String name) {
+        Rol rol = name == null ? null : BY_NAME.get(name);
+        if (rol == null) {
+            throw new IllegalArgumentException("El rol es inválido");
+        }
+        return rol;
+    }
+
+    /**
+     * @param code Código guardado en la Base de Datos
+     * @return El rol con ese código
+     * @throws IllegalArgumentException Si el código no corresponde a ningún rol
+     */
+    public static Rol fromCode(int code) {
+        Rol rol = code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+        if (rol == null) {
+            throw new IllegalArgumentException("Código de rol desconocido: " + code);
+        }
+        return rol;
+    }
+
+    public static boolean isValid(String name) {
+        return name != null && BY_NAME.containsKey(name);
+    }
+
+    /**
+     * Bits de los roles presentes en las autoridades de un usuario
+     */
+    public static long mask(Collection<? extends GrantedAuthority> authorities) {
+        long mask = 0;
+        for (GrantedAuthority authority : authorities) {
+            if (authority instanceof Rol rol) {
+                mask |= rol.bit;
+            }
+        }
+        return mask;
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.lp.gestionusuariosroles.user.repository;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Guarda el nombre del rol como su código compacto de {@link Rol} (smallint)
+ */
+@Converter
+public class RolConverter implements AttributeConverter<String, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(String rol) {
+        return rol == null ? null : Rol.fromName(rol).code();
+    }
+
+    @Override
+    public String convertToEntityAttribute(Short code) {
+        return code == null ? null : Rol.fromCode(code).name();
+    }
+
+}
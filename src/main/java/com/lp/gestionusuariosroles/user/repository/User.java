@@ -6,8 +6,8 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.time.LocalDate;
@@ -20,9 +20,19 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_apellidos_id", columnList = "apellidos, id"),
+        @Index(name = "idx_users_rol_code_estado", columnList = "rol_code, estado")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = User.EMAIL_UNIQUE_CONSTRAINT, columnNames = "email"),
+        @UniqueConstraint(name = User.DNI_UNIQUE_CONSTRAINT, columnNames = "dni")
+})
 public class User implements UserDetails {
 
+    // Nombres de las restricciones únicas en la Base de Datos (el de email es el que generó Hibernate)
+    public static final String EMAIL_UNIQUE_CONSTRAINT = "uk6dotkott2kjsp8vw4d0m25fb7";
+    public static final String DNI_UNIQUE_CONSTRAINT = "uk_users_dni";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -33,13 +43,15 @@ public class User implements UserDetails {
     @Column(nullable = false)
     private String apellidos;
 
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String email;
 
     @Column(nullable = false)
     private String password;
 
-    @Column(nullable = false)
+    // Nombre del rol (ver Rol); se guarda como su código compacto en rol_code
+    @Column(name = "rol_code", nullable = false)
+    @Convert(converter = RolConverter.class)
     private String rol;
 
     @Column(nullable = false)
@@ -54,22 +66,28 @@ public class User implements UserDetails {
     @Column(nullable = false)
     private String dni;
 
-    @Column
-    private String resetToken;
-
     @Column
     @Builder.Default
     private Boolean is2faEnabled = false;
 
-    @Column(name = "two_factor_code")
-    private String twoFactorCode;
+    // Se incrementa para revocar de una vez todas las sesiones (JWT) del usuario
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Integer sessionVersion = 0;
+
+    // Se incrementa cuando cambian los datos del perfil; los JWT llevan la versión con la que se emitieron
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Integer profileVersion = 0;
 
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Token> tokens = new ArrayList<>();
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return List.of(new SimpleGrantedAuthority(rol));
+        return Rol.fromName(rol).authorities();
     }
 
     @Override
@@ -1,22 +1,74 @@
 package com.lp.gestionusuariosroles.user.repository;
 
+import com.lp.gestionusuariosroles.user.controller.UserDataResponse;
+import com.lp.gestionusuariosroles.user.controller.UserSummaryResponse;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
 
-    @Query("SELECT u.rol, COUNT(u) FROM User u GROUP BY u.rol")
-    List<Object[]> countUsersByRol();
+    // Proyecciones: solo las columnas que se devuelven, sin pasar por el contexto de persistencia
+    Page<UserSummaryResponse.UserSummary> findAllBy(Pageable pageable);
 
-    User findByResetToken(String resetToken);
+    Optional<UserDataResponse> findDataById(Long id);
+
+    @Query("SELECT u.rol, u.estado, COUNT(u) FROM User u GROUP BY u.rol, u.estado")
+    List<Object[]> countUsersByRolAndEstado();
 
     boolean existsByDni(String dni);
 
     boolean existsByEmail(String email);
 
-    long countUsersByEstado(Boolean estado);
+    // Lista por cursor: búsqueda por índice a partir de la última fila entregada, sin OFFSET
+    @Query(value = "SELECT id, nombres, apellidos, email, rol_code AS rolCode, estado FROM users " +
+            "WHERE id > :afterId ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<UserSummaryView> findPageAfterId(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    @Query(value = "SELECT id, nombres, apellidos, email, rol_code AS rolCode, estado FROM users " +
+            "WHERE (apellidos, id) > (:apellidos, :afterId) ORDER BY apellidos, id LIMIT :limit", nativeQuery = true)
+    List<UserSummaryView> findPageAfterApellidos(
+            @Param("apellidos") String apellidos,
+            @Param("afterId") long afterId,
+            @Param("limit") int limit
+    );
+
+    // Recorrido completo en streaming (por lotes del driver) para construir el índice de búsqueda
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT u.id AS id, u.nombres AS nombres, u.apellidos AS apellidos, u.email AS email, " +
+            "u.rol AS rol, u.estado AS estado, u.dni AS dni FROM User u ORDER BY u.id")
+    Stream<UserSearchView> streamAllForSearch();
+
+    // Recorrido de emails y DNIs en streaming para construir los filtros de unicidad
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT u.email, u.dni FROM User u")
+    Stream<Object[]> streamEmailsAndDnis();
+
+    // Verificación de unicidad por lotes (importación masiva y filtros de unicidad)
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    List<String> findExistingEmails(Collection<String> emails);
+
+    @Query("SELECT u.dni FROM User u WHERE u.dni IN :dnis")
+    List<String> findExistingDnis(Collection<String> dnis);
+
+    @Query("SELECT u.email FROM User u WHERE u.id IN :ids")
+    List<String> findEmailsByIdIn(Collection<Long> ids);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.sessionVersion = u.sessionVersion + 1 WHERE u.id IN :ids")
+    int incrementSessionVersionByIdIn(Collection<Long> ids);
 }
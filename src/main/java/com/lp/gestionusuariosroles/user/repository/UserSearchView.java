@@ -0,0 +1,18 @@
+package com.lp.gestionusuariosroles.user.repository;
+
+// Proyección con las columnas que indexa la búsqueda de usuarios (lista + DNI), leída con JPQL (rol ya convertido)
+public interface UserSearchView {
+    Long getId();
+
+    String getNombres();
+
+    String getApellidos();
+
+    String getEmail();
+
+    String getRol();
+
+    Boolean getEstado();
+
+    String getDni();
+}
@@ -0,0 +1,21 @@
+package com.lp.gestionusuariosroles.user.repository;
+
+// Proyección con las columnas de la lista de usuarios, para las consultas nativas que no cargan la entidad
+public interface UserSummaryView {
+    Long getId();
+
+    String getNombres();
+
+    String getApellidos();
+
+    String getEmail();
+
+    // Código del rol tal como está en users.rol_code (las consultas nativas no aplican RolConverter)
+    Integer getRolCode();
+
+    default String getRol() {
+        return Rol.fromCode(getRolCode()).name();
+    }
+
+    Boolean getEstado();
+}
@@ -0,0 +1,84 @@
+package com.lp.gestionusuariosroles.user.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lp.gestionusuariosroles.user.controller.UserDataResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+
+/**
+ * Caché en memoria de los datos de perfil del usuario en sesión, indexada por id de usuario
+ * y validada con la versión del perfil.
+ * -
+ * Una entrada solo se usa si su versión coincide con la que trae el JWT; cualquier cambio en el perfil
+ * incrementa la versión, así que la siguiente lectura vuelve a la Base de Datos.
+ * -
+ * Las métricas se publican como "cache.*" con el nombre "sessionProfile"
+ */
+@Component
+public class SessionProfileCache {
+
+    private final Cache<Long, VersionedProfile> cache;
+
+    public SessionProfileCache(
+            MeterRegistry meterRegistry,
+            @Value("${application.security.session-profile-cache.max-size:10000}") long maxSize,
+            @Value("${application.security.session-profile-cache.ttl:5m}") Duration ttl
+    ) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "sessionProfile");
+    }
+
+    /**
+     * Devuelve el perfil en caché si fue guardado con la versión indicada
+     *
+     * @param userId Id del usuario
+     * @param profileVersion Versión del perfil que trae el JWT
+     * @return El perfil, o null si no está en caché o su versión es distinta
+     */
+    public UserDataResponse get(Long userId, int profileVersion) {
+        VersionedProfile cached = cache.getIfPresent(userId);
+        return cached != null && cached.version() == profileVersion ? cached.profile() : null;
+    }
+
+    /**
+     * Guarda el perfil leído de la Base de Datos junto con su versión
+     *
+     * @param profileVersion Versión del perfil leído
+     * @param profile Datos del perfil
+     */
+    public void put(int profileVersion, UserDataResponse profile) {
+        cache.put(profile.id(), new VersionedProfile(profileVersion, profile));
+    }
+
+    /**
+     * Elimina el perfil de un usuario (por ejemplo, al eliminarlo)
+     *
+     * @param userId Id del usuario
+     */
+    public void evict(Long userId) {
+        cache.invalidate(userId);
+    }
+
+    /**
+     * Elimina los perfiles de varios usuarios (por ejemplo, en una eliminación masiva)
+     *
+     * @param userIds Ids de los usuarios
+     */
+    public void evictAll(Collection<Long> userIds) {
+        cache.invalidateAll(userIds);
+    }
+
+    private record VersionedProfile(int version, UserDataResponse profile) {
+    }
+
+}
@@ -0,0 +1,161 @@
+package com.lp.gestionusuariosroles.user.service;
+
+import com.lp.gestionusuariosroles.config.CachingUserDetailsService;
+import com.lp.gestionusuariosroles.user.controller.BulkOperationResponse;
+import com.lp.gestionusuariosroles.user.controller.BulkUserRequest;
+import com.lp.gestionusuariosroles.user.repository.Rol;
+import com.lp.gestionusuariosroles.user.repository.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Cambio de estado y eliminación masivos de usuarios, por lista de ids o por filtro (rol y/o estado).
+ * -
+ * Cada operación es una sola sentencia SQL: un UPDATE o DELETE ... RETURNING dentro de un WITH que también
+ * revoca o elimina los tokens de los usuarios afectados, sin cargar entidades ni recorrer User.tokens.
+ * Las filas devueltas por RETURNING actualizan el índice de búsqueda, los contadores y las cachés después del commit.
+ * Los pasos sobre token (y la verificación de la clave foránea al eliminar usuarios) buscan por user_id con
+ * idx_token_user_id (migración 014), así que el costo crece con el lote y no con el tamaño de la tabla token.
+ * -
+ * El usuario en sesión nunca se incluye, para que no pueda desactivarse ni eliminarse a sí mismo por un filtro
+ */
+@Service
+@RequiredArgsConstructor
+public class UserBulkService {
+
+    private static final int MAX_BULK_IDS = 1000;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final CachingUserDetailsService userDetailsService;
+    private final SessionProfileCache profileCache;
+    private final UserSearchIndex searchIndex;
+    private final UserCounters userCounters;
+
+    /**
+     * Cambia el estado de los usuarios indicados. Solo se modifican los que tienen un estado distinto;
+     * al desactivarlos se incrementa su versión de sesión y se revocan sus tokens en la misma sentencia
+     *
+     * @param request Ids y/o filtro de los usuarios
+     * @param nuevoEstado El nuevo estado de los usuarios
+     * @param sessionUserId Id del usuario en sesión (se excluye)
+     * @return Cantidad de usuarios modificados
+     * @throws IllegalArgumentException Si no se indica ningún criterio o hay demasiados ids
+     */
+    @Transactional
+    public BulkOperationResponse changeEstado(BulkUserRequest request, Boolean nuevoEstado, Long sessionUserId) {
+        if (nuevoEstado == null) {
+            throw new IllegalArgumentException("Debe indicar el nuevo estado");
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource("nuevoEstado", nuevoEstado);
+        String criteria = criteria(request, sessionUserId, params);
+
+        String sql = "WITH changed AS (" +
+                "UPDATE users SET estado = :nuevoEstado, profile_version = profile_version + 1" +
+                (nuevoEstado ? "" : ", session_version = session_version + 1") +
+                " WHERE estado <> :nuevoEstado AND " + criteria +
+                " RETURNING id, nombres, apellidos, email, rol_code, dni)" +
+                (nuevoEstado ? "" : ", revoked AS (" +
+                        "UPDATE token SET is_expired = true, is_revoked = true " +
+                        "WHERE user_id IN (SELECT id FROM changed) AND (is_expired = false OR is_revoked = false))") +
+                " SELECT id, nombres, apellidos, email, rol_code, dni FROM changed";
+
+        List<User> changed = jdbcTemplate.query(sql, params, (rs, rowNum) -> User.builder()
+                .id(rs.getLong("id"))
+                .nombres(rs.getString("nombres"))
+                .apellidos(rs.getString("apellidos"))
+                .email(rs.getString("email"))
+                .rol(Rol.fromCode(rs.getInt("rol_code")).name())
+                .dni(rs.getString("dni"))
+                .estado(nuevoEstado)
+                .build());
+        if (changed.isEmpty()) {
+            return new BulkOperationResponse(0);
+        }
+
+        searchIndex.upsertAll(changed);
+        changed.stream()
+                .collect(Collectors.groupingBy(User::getRol, Collectors.counting()))
+                .forEach((rol, count) -> userCounters.changed(rol, !nuevoEstado, rol, nuevoEstado, count));
+        userDetailsService.evictAll(changed.stream().map(User::getEmail).toList());
+        return new BulkOperationResponse(changed.size());
+    }
+
+    /**
+     * Elimina los usuarios indicados junto con sus tokens, en una sola sentencia
+     *
+     * @param request Ids y/o filtro de los usuarios
+     * @param sessionUserId Id del usuario en sesión (se excluye)
+     * @return Cantidad de usuarios eliminados
+     * @throws IllegalArgumentException Si no se indica ningún criterio o hay demasiados ids
+     */
+    @Transactional
+    public BulkOperationResponse deleteUsers(BulkUserRequest request, Long sessionUserId) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String criteria = criteria(request, sessionUserId, params);
+
+        String sql = "WITH removed AS (" +
+                "DELETE FROM users WHERE " + criteria + " RETURNING id, email, rol_code, estado), " +
+                "removed_tokens AS (DELETE FROM token WHERE user_id IN (SELECT id FROM removed)) " +
+                "SELECT id, email, rol_code, estado FROM removed";
+
+        List<User> removed = jdbcTemplate.query(sql, params, (rs, rowNum) -> User.builder()
+                .id(rs.getLong("id"))
+                .email(rs.getString("email"))
+                .rol(Rol.fromCode(rs.getInt("rol_code")).name())
+                .estado(rs.getBoolean("estado"))
+                .build());
+        if (removed.isEmpty()) {
+            return new BulkOperationResponse(0);
+        }
+
+        List<Long> ids = removed.stream().map(User::getId).toList();
+        searchIndex.deleteAll(ids);
+        profileCache.evictAll(ids);
+        removed.stream()
+                .collect(Collectors.groupingBy(user -> Map.entry(user.getRol(), user.getEstado()), Collectors.counting()))
+                .forEach((key, count) -> userCounters.deleted(key.getKey(), key.getValue(), count));
+        userDetailsService.evictAll(removed.stream().map(User::getEmail).toList());
+        return new BulkOperationResponse(removed.size());
+    }
+
+    /**
+     * Condición WHERE con los criterios de la solicitud (combinados con AND), siempre excluyendo al usuario en sesión
+     */
+    private static String criteria(BulkUserRequest request, Long sessionUserId, MapSqlParameterSource params) {
+        if (request == null) {
+            throw new IllegalArgumentException("Debe indicar los usuarios o un filtro");
+        }
+        boolean hasIds = request.userIds() != null && !request.userIds().isEmpty();
+        boolean hasRol = request.rol() != null && !request.rol().isBlank();
+        if (!hasIds && !hasRol && request.estado() == null) {
+            throw new IllegalArgumentException("Debe indicar los usuarios o un filtro");
+        }
+
+        StringBuilder where = new StringBuilder("id <> :sessionUserId");
+        params.addValue("sessionUserId", sessionUserId != null ? sessionUserId : -1L);
+        if (hasIds) {
+            if (request.userIds().size() > MAX_BULK_IDS) {
+                throw new IllegalArgumentException("No se pueden indicar más de " + MAX_BULK_IDS + " usuarios por solicitud");
+            }
+            where.append(" AND id IN (:userIds)");
+            params.addValue("userIds", request.userIds());
+        }
+        if (hasRol) {
+            where.append(" AND rol_code = :rolCode");
+            params.addValue("rolCode", Rol.fromName(request.rol()).code());
+        }
+        if (request.estado() != null) {
+            where.append(" AND estado = :estado");
+            params.addValue("estado", request.estado());
+        }
+        return where.toString();
+    }
+
+}
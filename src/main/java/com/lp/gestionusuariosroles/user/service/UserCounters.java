@@ -0,0 +1,210 @@
+package com.lp.gestionusuariosroles.user.service;
+
+import com.lp.gestionusuariosroles.config.AfterCommit;
+import com.lp.gestionusuariosroles.user.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Contadores en memoria de usuarios por (rol, estado), para que las métricas y la distribución por rol
+ * no recorran la tabla users en cada consulta.
+ * -
+ * Se cargan con un GROUP BY al iniciar la aplicación y se actualizan después del commit de cada alta,
+ * cambio de rol o estado y eliminación. Una reconciliación periódica contra la Base de Datos corrige
+ * cualquier diferencia (por ejemplo, cambios hechos fuera de la aplicación).
+ * -
+ * Para que la reconciliación no pierda ni duplique cambios, cada transacción toma el bloqueo de lectura
+ * justo antes de su commit y lo libera después de aplicar su cambio en memoria; la reconciliación toma el de
+ * escritura durante la consulta y el reemplazo. Así cada commit queda antes de la lectura (y ya está en la
+ * consulta) o después del reemplazo (y se aplica sobre los contadores nuevos)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserCounters {
+
+    private final UserRepository repository;
+    private volatile Map<Key, AtomicLong> counts = new ConcurrentHashMap<>();
+    private volatile boolean loaded = false;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Cantidad de usuarios con un estado
+     *
+     * @param estado Estado a contar
+     * @return Cantidad de usuarios activos (true) o inactivos (false)
+     */
+    public long countByEstado(boolean estado) {
+        long total = 0;
+        for (Map.Entry<Key, AtomicLong> entry : currentCounts().entrySet()) {
+            if (entry.getKey().estado() == estado) {
+                total += entry.getValue().get();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Cantidad de usuarios por rol, sin importar su estado
+     *
+     * @return Mapa de rol a cantidad de usuarios (solo roles con al menos un usuario)
+     */
+    public Map<String, Long> countByRol() {
+        Map<String, Long> distribution = new HashMap<>();
+        for (Map.Entry<Key, AtomicLong> entry : currentCounts().entrySet()) {
+            distribution.merge(entry.getKey().rol(), entry.getValue().get(), Long::sum);
+        }
+        distribution.values().removeIf(count -> count == 0);
+        return distribution;
+    }
+
+    /**
+     * Registra un usuario creado (después del commit)
+     */
+    public void created(String rol, boolean estado) {
+        afterCommit(() -> add(new Key(rol, estado), 1));
+    }
+
+    /**
+     * Registra un cambio de rol o estado de un usuario (después del commit)
+     */
+    public void changed(String previousRol, boolean previousEstado, String rol, boolean estado) {
+        changed(previousRol, previousEstado, rol, estado, 1);
+    }
+
+    /**
+     * Registra el mismo cambio de rol o estado para varios usuarios (después del commit)
+     */
+    public void changed(String previousRol, boolean previousEstado, String rol, boolean estado, long count) {
+        Key previous = new Key(previousRol, previousEstado);
+        Key current = new Key(rol, estado);
+        if (!previous.equals(current) && count > 0) {
+            afterCommit(() -> {
+                add(previous, -count);
+                add(current, count);
+            });
+        }
+    }
+
+    /**
+     * Registra un usuario eliminado (después del commit)
+     */
+    public void deleted(String rol, boolean estado) {
+        deleted(rol, estado, 1);
+    }
+
+    /**
+     * Registra varios usuarios eliminados con el mismo rol y estado (después del commit)
+     */
+    public void deleted(String rol, boolean estado, long count) {
+        if (count > 0) {
+            afterCommit(() -> add(new Key(rol, estado), -count));
+        }
+    }
+
+    /**
+     * Recalcula los contadores con un GROUP BY sobre la Base de Datos y reemplaza los valores en memoria
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(
+            initialDelayString = "${application.users.counters.reconcile-interval:PT5M}",
+            fixedDelayString = "${application.users.counters.reconcile-interval:PT5M}"
+    )
+    public void reconcile() {
+        lock.writeLock().lock();
+        try {
+            Map<Key, AtomicLong> fresh = new ConcurrentHashMap<>();
+            for (Object[] row : repository.countUsersByRolAndEstado()) {
+                fresh.put(new Key((String) row[0], (Boolean) row[1]), new AtomicLong((Long) row[2]));
+            }
+
+            if (loaded && !sameCounts(counts, fresh)) {
+                log.info("Contadores de usuarios reconciliados con la Base de Datos: {}", fresh);
+            }
+            counts = fresh;
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Map<Key, AtomicLong> currentCounts() {
+        if (!loaded) {
+            reconcile();
+        }
+        return counts;
+    }
+
+    /**
+     * Aplica el cambio después del commit (como {@link AfterCommit}), sosteniendo el bloqueo de lectura
+     * desde antes del commit hasta aplicarlo, para que no se cruce con una reconciliación
+     */
+    private void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            lock.readLock().lock();
+            try {
+                change.run();
+            } finally {
+                lock.readLock().unlock();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean locked;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                lock.readLock().lock();
+                locked = true;
+            }
+
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (locked) {
+                    locked = false;
+                    lock.readLock().unlock();
+                }
+            }
+        });
+    }
+
+    private void add(Key key, long delta) {
+        counts.computeIfAbsent(key, k -> new AtomicLong()).addAndGet(delta);
+    }
+
+    private static boolean sameCounts(Map<Key, AtomicLong> current, Map<Key, AtomicLong> fresh) {
+        for (Key key : current.keySet()) {
+            if (current.get(key).get() != 0 && !fresh.containsKey(key)) {
+                return false;
+            }
+        }
+        for (Map.Entry<Key, AtomicLong> entry : fresh.entrySet()) {
+            AtomicLong value = current.get(entry.getKey());
+            if (value == null || value.get() != entry.getValue().get()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private record Key(String rol, boolean estado) {
+    }
+
+}
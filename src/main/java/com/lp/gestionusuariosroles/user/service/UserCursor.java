@@ -0,0 +1,66 @@
+package com.lp.gestionusuariosroles.user.service;
+
+import com.lp.gestionusuariosroles.user.controller.UserListSort;
+import com.lp.gestionusuariosroles.user.repository.UserSummaryView;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Posición de la última fila entregada en la lista de usuarios por cursor: el valor de la clave
+ * de orden y el id que desempata.
+ * -
+ * Se entrega al cliente como un texto opaco (Base64 URL-safe) que solo es válido para el orden con que se generó
+ *
+ * @param sort Orden de la lista
+ * @param key Valor de la clave de orden de la última fila (vacío cuando el orden es por id)
+ * @param id Id de la última fila
+ */
+record UserCursor(UserListSort sort, String key, long id) {
+
+    private static final char SEPARATOR = '|';
+
+    /**
+     * Posición anterior a la primera fila: ninguna clave es menor que el texto vacío y los ids empiezan en 1
+     */
+    static UserCursor start(UserListSort sort) {
+        return new UserCursor(sort, "", 0L);
+    }
+
+    /**
+     * Posición de una fila entregada
+     */
+    static UserCursor after(UserListSort sort, UserSummaryView user) {
+        String key = sort == UserListSort.APELLIDOS ? user.getApellidos() : "";
+        return new UserCursor(sort, key, user.getId());
+    }
+
+    String encode() {
+        String raw = sort.name() + SEPARATOR + id + SEPARATOR + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica un cursor recibido del cliente
+     *
+     * @param cursor Cursor opaco devuelto en una página anterior
+     * @param sort Orden de la solicitud actual
+     * @return La posición decodificada
+     * @throws IllegalArgumentException Si el cursor está malformado o se generó con otro orden
+     */
+    static UserCursor decode(String cursor, UserListSort sort) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int first = raw.indexOf(SEPARATOR);
+            int second = raw.indexOf(SEPARATOR, first + 1);
+            if (first < 0 || second < 0 || !sort.name().equals(raw.substring(0, first))) {
+                throw new IllegalArgumentException("El cursor es inválido");
+            }
+            return new UserCursor(sort, raw.substring(second + 1), Long.parseLong(raw.substring(first + 1, second)));
+        } catch (IllegalArgumentException e) {
+            // Base64 inválido o id no numérico (NumberFormatException)
+            throw new IllegalArgumentException("El cursor es inválido");
+        }
+    }
+
+}
@@ -0,0 +1,190 @@
+package com.lp.gestionusuariosroles.user.service;
+
+import org.apache.poi.UnsupportedFileFormatException;
+import org.apache.poi.openxml4j.exceptions.InvalidOperationException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Lectura en streaming de archivos CSV y XLSX fila por fila, sin cargar la hoja completa en memoria.
+ * -
+ * El XLSX se lee desde un archivo con la API de eventos (SAX) de POI: solo se recorre la primera hoja,
+ * cada celda se entrega con su valor formateado (un número con formato "00000000" conserva sus ceros)
+ * y las fechas se entregan como yyyy-MM-dd
+ */
+final class UserImportReader {
+
+    /**
+     * Recibe cada fila leída
+     */
+    @FunctionalInterface
+    interface RowHandler {
+        /**
+         * @param rowNumber Número de fila en el archivo (la primera es 1)
+         * @param cells Valores de las celdas, en orden de columna (vacíos si no tienen valor)
+         */
+        void row(int rowNumber, List<String> cells);
+    }
+
+    private UserImportReader() {
+    }
+
+    /**
+     * Lee un CSV en UTF-8. El separador (coma o punto y coma) se detecta en la fila de encabezados;
+     * se admiten valores entre comillas dobles, con comillas escapadas ("") y saltos de línea
+     */
+    static void readCsv(InputStream input, RowHandler handler) throws IOException {
+        Reader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+
+        // El separador se decide con la primera fila, leída antes de procesarla
+        StringBuilder headerLine = new StringBuilder();
+        int c;
+        while ((c = reader.read()) != -1 && c != '\n') {
+            headerLine.append((char) c);
+        }
+        String header = headerLine.toString();
+        char delimiter = header.chars().filter(ch -> ch == ';').count() > header.chars().filter(ch -> ch == ',').count()
+                ? ';' : ',';
+
+        int rowNumber = 1;
+        parseCsv(new StringReader(header), delimiter, rowNumber, handler);
+        if (c != -1) {
+            parseCsv(reader, delimiter, rowNumber + 1, handler);
+        }
+    }
+
+    private static void parseCsv(Reader reader, char delimiter, int firstRowNumber, RowHandler handler) throws IOException {
+        List<String> cells = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        boolean rowHasContent = false;
+        int rowNumber = firstRowNumber;
+
+        int c;
+        while ((c = reader.read()) != -1) {
+            char ch = (char) c;
+            if (quoted) {
+                if (ch == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        value.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else {
+                    value.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+                rowHasContent = true;
+            } else if (ch == delimiter) {
+                cells.add(value.toString().trim());
+                value.setLength(0);
+                rowHasContent = true;
+            } else if (ch == '\n') {
+                cells.add(value.toString().trim());
+                handler.row(rowNumber++, cells);
+                cells = new ArrayList<>();
+                value.setLength(0);
+                rowHasContent = false;
+            } else if (ch != '\r') {
+                value.append(ch);
+                rowHasContent = true;
+            }
+        }
+        if (rowHasContent || !value.isEmpty()) {
+            cells.add(value.toString().trim());
+            handler.row(rowNumber, cells);
+        }
+    }
+
+    /**
+     * Lee la primera hoja de un XLSX con la API de eventos (SAX) de POI. El paquete se abre desde el archivo
+     * en modo lectura, así POI lee cada parte del zip bajo demanda en lugar de cargarlo completo en memoria
+     */
+    static void readXlsx(File file, RowHandler handler) throws IOException {
+        try (OPCPackage opcPackage = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader xssfReader = new XSSFReader(opcPackage);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(opcPackage);
+            StylesTable styles = xssfReader.getStylesTable();
+
+            Iterator<InputStream> sheets = xssfReader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+
+            // Las fechas con el formato por defecto de Excel (m/d/yy) se entregan como yyyy-MM-dd
+            DataFormatter formatter = new DataFormatter(Locale.ROOT);
+            formatter.addFormat("m/d/yy", new SimpleDateFormat("yyyy-MM-dd"));
+
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(
+                        styles, null, strings, new SheetRowCollector(handler), formatter, false
+                ));
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (OpenXML4JException | UnsupportedFileFormatException | InvalidOperationException
+                 | SAXException | ParserConfigurationException e) {
+            throw new IOException("El archivo XLSX es inválido", e);
+        }
+    }
+
+    /**
+     * Junta las celdas de cada fila de la hoja (las celdas vacías no generan eventos)
+     */
+    private static final class SheetRowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final RowHandler handler;
+        private final List<String> cells = new ArrayList<>();
+
+        private SheetRowCollector(RowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells.clear();
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            handler.row(rowNum + 1, new ArrayList<>(cells));
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : cells.size();
+            while (cells.size() < column) {
+                cells.add("");
+            }
+            cells.add(formattedValue == null ? "" : formattedValue.trim());
+        }
+    }
+
+}
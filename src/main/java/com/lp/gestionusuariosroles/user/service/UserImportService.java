@@ -0,0 +1,397 @@
+package com.lp.gestionusuariosroles.user.service;
+
+import com.lp.gestionusuariosroles.auth.controller.RegisterRequest;
+import com.lp.gestionusuariosroles.user.controller.UserImportResponse;
+import com.lp.gestionusuariosroles.user.repository.Rol;
+import com.lp.gestionusuariosroles.user.repository.User;
+import com.lp.gestionusuariosroles.validation.InputValidator;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Importación masiva de usuarios desde un archivo CSV o XLSX.
+ * -
+ * El archivo se lee en streaming (ver {@link UserImportReader}) y se procesa por lotes:
+ * cada fila se valida con las mismas reglas del registro, la unicidad de email y DNI se verifica con una
+ * consulta IN por lote, las contraseñas se hashean en paralelo en un pool acotado y los usuarios se insertan
+ * con un único INSERT de varias filas por lote (ON CONFLICT DO NOTHING): si otro proceso registró el mismo
+ * email o DNI después de la verificación, solo esas filas se informan como conflicto.
+ * -
+ * Las filas rechazadas no detienen la importación: se devuelven con su número de fila y el motivo
+ */
+@Slf4j
+@Service
+public class UserImportService {
+
+    private static final List<String> COLUMNS = List.of(
+            "nombres", "apellidos", "email", "password", "rol", "fechanacimiento", "telefono", "dni"
+    );
+    private static final int DNI_LENGTH = 8;
+    private static final DateTimeFormatter DAY_FIRST_DATE = DateTimeFormatter.ofPattern("d/M/yyyy");
+    private static final String INSERT_USERS = "INSERT INTO users (nombres, apellidos, email, password, rol_code, " +
+            "fecha_nacimiento, estado, telefono, dni, is2fa_enabled, session_version, profile_version) VALUES ";
+    private static final String INSERT_USER_VALUES = "(?, ?, ?, ?, ?, ?, true, ?, ?, false, 0, 0)";
+    // Las filas que chocan con un email o DNI ya registrado no se insertan y no aparecen en RETURNING
+    private static final String INSERT_USERS_RETURNING = " ON CONFLICT DO NOTHING RETURNING id, email";
+    // PostgreSQL admite hasta 65535 parámetros por sentencia (8 por usuario)
+    private static final int MAX_BATCH_SIZE = 65535 / 8;
+
+    private final InputValidator inputValidator;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserSearchIndex searchIndex;
+    private final UserCounters userCounters;
+    private final UserUniquenessFilter uniquenessFilter;
+    private final int batchSize;
+
+    // Pool propio para no ocupar el de BoundedPasswordEncoder, que atiende los logins.
+    // Mismo algoritmo (BCrypt) que el PasswordEncoder de AppConfig
+    private final ExecutorService hashingPool;
+    private final PasswordEncoder passwordHasher = new BCryptPasswordEncoder();
+
+    public UserImportService(
+            InputValidator inputValidator,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            UserSearchIndex searchIndex,
+            UserCounters userCounters,
+            UserUniquenessFilter uniquenessFilter,
+            @Value("${application.users.import.batch-size:1000}") int batchSize,
+            @Value("${application.users.import.hash-threads:#{T(java.lang.Math).max(1, T(java.lang.Runtime).getRuntime().availableProcessors() / 2)}}") int hashThreads
+    ) {
+        this.inputValidator = inputValidator;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.searchIndex = searchIndex;
+        this.userCounters = userCounters;
+        this.uniquenessFilter = uniquenessFilter;
+        this.batchSize = Math.min(batchSize, MAX_BATCH_SIZE);
+        this.hashingPool = Executors.newFixedThreadPool(hashThreads);
+    }
+
+    /**
+     * Importa los usuarios del archivo. La primera fila debe tener los encabezados:
+     * nombres, apellidos, email, password, rol, fechaNacimiento (yyyy-MM-dd), telefono y dni
+     *
+     * @param file Archivo CSV (UTF-8, separado por comas o punto y coma) o XLSX (primera hoja)
+     * @return Total de filas, cantidad de usuarios importados y errores por fila
+     * @throws IllegalArgumentException Si el archivo está vacío, no es CSV/XLSX, no se puede leer o le faltan columnas
+     */
+    public UserImportResponse importUsers(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("Debe adjuntar un archivo CSV o XLSX");
+        }
+        String fileName = Objects.requireNonNullElse(file.getOriginalFilename(), "").toLowerCase(Locale.ROOT);
+
+        boolean xlsx = fileName.endsWith(".xlsx");
+        if (!xlsx && !fileName.endsWith(".csv")) {
+            throw new IllegalArgumentException("Formato no soportado, use un archivo CSV o XLSX");
+        }
+
+        ImportRun run = new ImportRun(xlsx);
+        try {
+            if (xlsx) {
+                readXlsx(file, run::accept);
+            } else {
+                try (InputStream input = file.getInputStream()) {
+                    UserImportReader.readCsv(input, run::accept);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("No se pudo leer el archivo: " + e.getMessage());
+        }
+        run.flush();
+
+        log.info("Importación de usuarios: {} filas, {} importados, {} con errores",
+                run.totalRows, run.imported, run.errors.size());
+        return new UserImportResponse(run.totalRows, run.imported, run.errors);
+    }
+
+    /**
+     * Copia el XLSX a un archivo temporal y lo lee desde ahí: abierto desde un InputStream, POI carga el zip
+     * completo en memoria, mientras que desde un archivo lee cada parte bajo demanda
+     */
+    private static void readXlsx(MultipartFile file, UserImportReader.RowHandler handler) throws IOException {
+        Path spooled = Files.createTempFile("user-import-", ".xlsx");
+        try {
+            file.transferTo(spooled);
+            UserImportReader.readXlsx(spooled.toFile(), handler);
+        } finally {
+            Files.deleteIfExists(spooled);
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        hashingPool.shutdown();
+    }
+
+    private record PendingRow(int rowNumber, RegisterRequest request) {
+    }
+
+    /**
+     * Estado de una importación: columnas, lote pendiente, valores ya vistos en el archivo y resultado
+     */
+    private final class ImportRun {
+        private final boolean xlsx;
+        private Map<String, Integer> columnIndex;
+        private final List<PendingRow> batch = new ArrayList<>();
+        private final Set<String> seenEmails = new HashSet<>();
+        private final Set<String> seenDnis = new HashSet<>();
+        private final List<UserImportResponse.RowError> errors = new ArrayList<>();
+        private int totalRows = 0;
+        private int imported = 0;
+
+        private ImportRun(boolean xlsx) {
+            this.xlsx = xlsx;
+        }
+
+        void accept(int rowNumber, List<String> cells) {
+            if (columnIndex == null) {
+                columnIndex = readHeader(cells);
+                return;
+            }
+            if (cells.stream().allMatch(String::isEmpty)) {
+                return;
+            }
+            totalRows++;
+
+            RegisterRequest request;
+            try {
+                request = toRequest(cells);
+                validate(request);
+            } catch (IllegalArgumentException e) {
+                errors.add(new UserImportResponse.RowError(rowNumber, e.getMessage()));
+                return;
+            }
+            if (!seenEmails.add(request.email())) {
+                errors.add(new UserImportResponse.RowError(rowNumber, "El email está repetido en el archivo"));
+                return;
+            }
+            if (!seenDnis.add(request.dni())) {
+                errors.add(new UserImportResponse.RowError(rowNumber, "El dni está repetido en el archivo"));
+                return;
+            }
+
+            batch.add(new PendingRow(rowNumber, request));
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        /**
+         * Procesa el lote pendiente: unicidad contra la Base de Datos, hashing en paralelo e inserción
+         */
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            Set<String> existingEmails = uniquenessFilter.existingEmails(
+                    batch.stream().map(row -> row.request().email()).toList());
+            Set<String> existingDnis = uniquenessFilter.existingDnis(
+                    batch.stream().map(row -> row.request().dni()).toList());
+
+            List<PendingRow> rows = new ArrayList<>(batch.size());
+            for (PendingRow row : batch) {
+                if (existingEmails.contains(row.request().email())) {
+                    errors.add(new UserImportResponse.RowError(row.rowNumber(), "El email ya existe"));
+                } else if (existingDnis.contains(row.request().dni())) {
+                    errors.add(new UserImportResponse.RowError(row.rowNumber(), "El dni ya está registrado con otro usuario"));
+                } else {
+                    rows.add(row);
+                }
+            }
+            batch.clear();
+            if (rows.isEmpty()) {
+                return;
+            }
+
+            List<String> hashes = hashPasswords(rows);
+            Map<String, Long> ids = transactionTemplate.execute(status -> insert(rows, hashes));
+
+            int inserted = 0;
+            for (PendingRow row : rows) {
+                RegisterRequest request = row.request();
+                Long id = ids.get(request.email());
+                if (id == null) {
+                    // Otro proceso registró el mismo email o DNI entre la verificación y la inserción
+                    errors.add(new UserImportResponse.RowError(row.rowNumber(),
+                            "El email o el dni fue registrado por otro usuario durante la importación"));
+                    continue;
+                }
+                User user = User.builder()
+                        .id(id)
+                        .nombres(request.nombres())
+                        .apellidos(request.apellidos())
+                        .email(request.email())
+                        .rol(request.rol())
+                        .estado(true)
+                        .dni(request.dni())
+                        .build();
+                uniquenessFilter.add(user.getEmail(), user.getDni());
+                searchIndex.upsert(user);
+                userCounters.created(user.getRol(), true);
+                inserted++;
+            }
+            imported += inserted;
+        }
+
+        private RegisterRequest toRequest(List<String> cells) {
+            return new RegisterRequest(
+                    cell(cells, "nombres"),
+                    cell(cells, "apellidos"),
+                    cell(cells, "email"),
+                    cell(cells, "password"),
+                    cell(cells, "rol"),
+                    parseDate(cell(cells, "fechanacimiento")),
+                    cell(cells, "telefono"),
+                    xlsx ? restoreLeadingZeros(cell(cells, "dni")) : cell(cells, "dni")
+            );
+        }
+
+        private String cell(List<String> cells, String column) {
+            int index = columnIndex.get(column);
+            return index < cells.size() ? cells.get(index) : "";
+        }
+    }
+
+    private List<String> hashPasswords(List<PendingRow> rows) {
+        List<Future<String>> futures = new ArrayList<>(rows.size());
+        for (PendingRow row : rows) {
+            String password = row.request().password();
+            futures.add(hashingPool.submit(() -> passwordHasher.encode(password)));
+        }
+
+        List<String> hashes = new ArrayList<>(rows.size());
+        try {
+            for (Future<String> future : futures) {
+                hashes.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Importación interrumpida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error al procesar las contraseñas", e.getCause());
+        }
+        return hashes;
+    }
+
+    /**
+     * Inserta el lote en una sola sentencia
+     *
+     * @return Id de cada usuario insertado, por email (los que chocaron con un registro existente no están)
+     */
+    private Map<String, Long> insert(List<PendingRow> rows, List<String> hashes) {
+        String sql = INSERT_USERS + String.join(", ", Collections.nCopies(rows.size(), INSERT_USER_VALUES))
+                + INSERT_USERS_RETURNING;
+        Map<String, Long> ids = new HashMap<>(rows.size() * 2);
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(sql);
+                    int parameter = 1;
+                    for (int i = 0; i < rows.size(); i++) {
+                        RegisterRequest request = rows.get(i).request();
+                        statement.setString(parameter++, request.nombres());
+                        statement.setString(parameter++, request.apellidos());
+                        statement.setString(parameter++, request.email());
+                        statement.setString(parameter++, hashes.get(i));
+                        statement.setShort(parameter++, Rol.fromName(request.rol()).code());
+                        statement.setDate(parameter++, Date.valueOf(request.fechaNacimiento()));
+                        statement.setString(parameter++, request.telefono());
+                        statement.setString(parameter++, request.dni());
+                    }
+                    return statement;
+                },
+                (RowCallbackHandler) resultSet -> ids.put(resultSet.getString("email"), resultSet.getLong("id"))
+        );
+        return ids;
+    }
+
+    private Map<String, Integer> readHeader(List<String> cells) {
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < cells.size(); i++) {
+            index.putIfAbsent(normalizeHeader(cells.get(i)), i);
+        }
+        List<String> missing = COLUMNS.stream().filter(column -> !index.containsKey(column)).toList();
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("Faltan columnas en el archivo: " + String.join(", ", missing));
+        }
+        return index;
+    }
+
+    /**
+     * Reglas del registro ({@link InputValidator}) más los campos obligatorios de la tabla users
+     */
+    private void validate(RegisterRequest request) {
+        if (request.nombres().isEmpty()) {
+            throw new IllegalArgumentException("El nombre no puede estar vacío");
+        }
+        if (request.apellidos().isEmpty()) {
+            throw new IllegalArgumentException("El apellido no puede estar vacío");
+        }
+        if (request.rol().isEmpty()) {
+            throw new IllegalArgumentException("El rol es obligatorio");
+        }
+        inputValidator.validate(request);
+    }
+
+    private static LocalDate parseDate(String value) {
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException("La fecha de nacimiento es obligatoria");
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            try {
+                return LocalDate.parse(value, DAY_FIRST_DATE);
+            } catch (DateTimeParseException ignored) {
+                throw new IllegalArgumentException("Fecha de nacimiento inválida, use el formato yyyy-MM-dd");
+            }
+        }
+    }
+
+    /**
+     * Un DNI escrito como número en Excel (con formato General) pierde los ceros a la izquierda: "01234567"
+     * queda como 1234567. Si la celda solo tiene dígitos y le faltan, se completan hasta los 8 del DNI
+     */
+    private static String restoreLeadingZeros(String dni) {
+        if (dni.isEmpty() || dni.length() >= DNI_LENGTH || !dni.chars().allMatch(c -> c >= '0' && c <= '9')) {
+            return dni;
+        }
+        return "0".repeat(DNI_LENGTH - dni.length()) + dni;
+    }
+
+    private static String normalizeHeader(String header) {
+        return Normalizer.normalize(header, Normalizer.Form.NFD)
+                .replaceAll("[^\\p{Alnum}]", "")
+                .toLowerCase(Locale.ROOT);
+    }
+
+}
@@ -0,0 +1,532 @@
+package com.lp.gestionusuariosroles.user.service;
+
+import com.lp.gestionusuariosroles.config.AfterCommit;
+import com.lp.gestionusuariosroles.exceptions.ServiceOverloadedException;
+import com.lp.gestionusuariosroles.user.controller.UserSearchResponse;
+import com.lp.gestionusuariosroles.user.controller.UserSummaryResponse;
+import com.lp.gestionusuariosroles.user.repository.User;
+import com.lp.gestionusuariosroles.user.repository.UserRepository;
+import com.lp.gestionusuariosroles.user.repository.UserSearchView;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Índice invertido en memoria para buscar usuarios por nombres, apellidos, email y DNI
+ * sin consultar la Base de Datos con LIKE '%...%'.
+ * -
+ * Cada usuario ocupa una posición (slot); cada término (en minúsculas y sin tildes) apunta a los slots
+ * que lo contienen, y los términos se guardan ordenados para resolver búsquedas por prefijo.
+ * Los filtros por rol y estado son BitSets que se intersectan con las coincidencias.
+ * -
+ * Se construye al iniciar la aplicación recorriendo la tabla users en streaming y se actualiza
+ * después del commit de cada alta, modificación o eliminación. Mientras se construye,
+ * las búsquedas se rechazan con {@link ServiceOverloadedException} (503).
+ * -
+ * Si la construcción falla, el índice parcial se descarta y se reintenta con backoff exponencial;
+ * mientras tanto las búsquedas responden 503 indicando que el índice no está disponible
+ */
+@Slf4j
+@Component
+public class UserSearchIndex {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+    // Un prefijo más corto recorre demasiados términos del índice; esos términos solo filtran las coincidencias
+    static final int MIN_TERM_LENGTH = 3;
+
+    private final UserRepository repository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Duration initialRetryBackoff;
+    private final Duration maxRetryBackoff;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+    private final Map<Long, Integer> slotsByUserId = new HashMap<>();
+    private final List<Document> documents = new ArrayList<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final BitSet alive = new BitSet();
+    private final BitSet active = new BitSet();
+    private final Map<String, BitSet> slotsByRol = new HashMap<>();
+
+    // Ids modificados mientras se construye el índice: la versión del recorrido inicial podría ser anterior.
+    // Solo se registran durante una construcción en curso y se vacían al terminarla (con éxito o no)
+    private final Set<Long> changedWhileBuilding = new HashSet<>();
+    private boolean building = false;
+    private volatile boolean ready = false;
+
+    // Construcciones fallidas seguidas y momento del próximo reintento
+    private volatile int failedBuilds = 0;
+    private volatile Instant nextRetryAt = Instant.MAX;
+
+    public UserSearchIndex(
+            UserRepository repository,
+            PlatformTransactionManager transactionManager,
+            @Value("${application.users.search-index.initial-retry-backoff:30s}") Duration initialRetryBackoff,
+            @Value("${application.users.search-index.max-retry-backoff:15m}") Duration maxRetryBackoff
+    ) {
+        this.repository = repository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.initialRetryBackoff = initialRetryBackoff;
+        this.maxRetryBackoff = maxRetryBackoff;
+    }
+
+    /**
+     * Construye el índice recorriendo todos los usuarios en streaming, sin cargarlos como entidades.
+     * Si falla, la aplicación sigue funcionando, la búsqueda queda no disponible y se programa un reintento
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            building = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            stream();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                clear();
+                building = false;
+                Duration backoff = initialRetryBackoff.multipliedBy(1L << Math.min(failedBuilds, 20));
+                backoff = backoff.compareTo(maxRetryBackoff) > 0 ? maxRetryBackoff : backoff;
+                failedBuilds++;
+                nextRetryAt = Instant.now().plus(backoff);
+                log.error("No se pudo construir el índice de búsqueda de usuarios (intento {}), se reintentará en {}",
+                        failedBuilds, backoff, e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            changedWhileBuilding.clear();
+            building = false;
+            failedBuilds = 0;
+            nextRetryAt = Instant.MAX;
+            ready = true;
+            log.info("Índice de búsqueda de usuarios construido: {} usuarios, {} términos en {} ms",
+                    slotsByUserId.size(), postings.size(), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reintenta la construcción del índice si falló y ya pasó el backoff
+     */
+    @Scheduled(fixedDelayString = "${application.users.search-index.retry-check-interval:PT10S}")
+    public void retryFailedBuild() {
+        if (!ready && failedBuilds > 0 && !Instant.now().isBefore(nextRetryAt)) {
+            build();
+        }
+    }
+
+    private void stream() {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<UserSearchView> rows = repository.streamAllForSearch()) {
+                rows.forEach(row -> {
+                    Document document = new Document(
+                            new UserSummaryResponse.UserSummary(
+                                    row.getId(), row.getNombres(), row.getApellidos(),
+                                    row.getEmail(), row.getRol(), row.getEstado()
+                            ),
+                            terms(row.getNombres(), row.getApellidos(), row.getEmail(), row.getDni())
+                    );
+                    lock.writeLock().lock();
+                    try {
+                        if (!changedWhileBuilding.contains(row.getId())) {
+                            add(document);
+                        }
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Busca usuarios cuyos términos empiecen por cada uno de los términos de la consulta.
+     * Solo los términos de al menos {@link #MIN_TERM_LENGTH} caracteres se buscan en el índice; los más cortos
+     * (por ejemplo, el dominio "pe" de un email) se verifican sobre los usuarios que ya coincidieron
+     *
+     * @param query Texto a buscar (nombres, apellidos, email o DNI, completos o por prefijo)
+     * @param rol Rol por el que filtrar (null para no filtrar)
+     * @param estado Estado por el que filtrar (null para no filtrar)
+     * @param limit Cantidad máxima de usuarios a devolver
+     * @return Los primeros usuarios que coinciden y el total de coincidencias
+     * @throws IllegalArgumentException Si la consulta no tiene términos o ninguno tiene la longitud mínima
+     * @throws ServiceOverloadedException Si el índice aún se está construyendo
+     */
+    public UserSearchResponse search(String query, String rol, Boolean estado, int limit) {
+        String[] queryTerms = query == null ? new String[0] : tokenize(query);
+        if (queryTerms.length == 0) {
+            throw new IllegalArgumentException("Debe indicar un texto de búsqueda");
+        }
+        List<String> indexedTerms = new ArrayList<>();
+        List<String> shortTerms = new ArrayList<>();
+        for (String term : queryTerms) {
+            (term.length() >= MIN_TERM_LENGTH ? indexedTerms : shortTerms).add(term);
+        }
+        if (indexedTerms.isEmpty()) {
+            throw new IllegalArgumentException("La búsqueda debe incluir al menos una palabra de " + MIN_TERM_LENGTH + " caracteres o más");
+        }
+        if (!ready) {
+            if (failedBuilds > 0) {
+                throw new ServiceOverloadedException("El índice de búsqueda no está disponible por un error al construirlo, se está reintentando");
+            }
+            throw new ServiceOverloadedException("El índice de búsqueda se está construyendo, intente nuevamente en unos segundos");
+        }
+
+        lock.readLock().lock();
+        try {
+            BitSet matches = (BitSet) alive.clone();
+            if (rol != null) {
+                matches.and(slotsByRol.getOrDefault(rol, new BitSet()));
+            }
+            if (estado != null) {
+                if (estado) {
+                    matches.and(active);
+                } else {
+                    matches.andNot(active);
+                }
+            }
+            for (String term : indexedTerms) {
+                if (matches.isEmpty()) {
+                    break;
+                }
+                matches.and(prefixMatches(term));
+            }
+            if (!shortTerms.isEmpty()) {
+                for (int slot = matches.nextSetBit(0); slot >= 0; slot = matches.nextSetBit(slot + 1)) {
+                    if (!documents.get(slot).matchesAll(shortTerms)) {
+                        matches.clear(slot);
+                    }
+                }
+            }
+
+            List<UserSummaryResponse.UserSummary> content = new ArrayList<>();
+            for (int slot = matches.nextSetBit(0); slot >= 0 && content.size() < limit; slot = matches.nextSetBit(slot + 1)) {
+                content.add(documents.get(slot).summary());
+            }
+            return new UserSearchResponse(content, matches.cardinality());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Agrega o reemplaza un usuario en el índice.
+     * Si hay una transacción activa, se aplica después del commit
+     *
+     * @param user Usuario creado o modificado (ya guardado, con id)
+     */
+    public void upsert(User user) {
+        Document document = document(user);
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                if (tracking(user.getId())) {
+                    remove(user.getId());
+                    add(document);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Elimina un usuario del índice.
+     * Si hay una transacción activa, se aplica después del commit
+     *
+     * @param userId Id del usuario eliminado
+     */
+    public void delete(Long userId) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                if (tracking(userId)) {
+                    remove(userId);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Agrega o reemplaza varios usuarios en el índice, con un solo bloqueo de escritura.
+     * Si hay una transacción activa, se aplica después del commit
+     *
+     * @param users Usuarios creados o modificados (ya guardados, con id)
+     */
+    public void upsertAll(Collection<User> users) {
+        List<Document> changed = users.stream().map(UserSearchIndex::document).toList();
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                for (Document document : changed) {
+                    Long userId = document.summary().id();
+                    if (tracking(userId)) {
+                        remove(userId);
+                        add(document);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Elimina varios usuarios del índice, con un solo bloqueo de escritura.
+     * Si hay una transacción activa, se aplica después del commit
+     *
+     * @param userIds Ids de los usuarios eliminados
+     */
+    public void deleteAll(Collection<Long> userIds) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                for (Long userId : userIds) {
+                    if (tracking(userId)) {
+                        remove(userId);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Indica si un cambio debe aplicarse al índice (con el bloqueo de escritura tomado). Sin índice listo
+     * ni construcción en curso se ignora: ya está confirmado, así que la próxima construcción lo lee de la tabla
+     */
+    private boolean tracking(Long userId) {
+        if (ready) {
+            return true;
+        }
+        if (!building) {
+            return false;
+        }
+        changedWhileBuilding.add(userId);
+        return true;
+    }
+
+    /**
+     * Descarta el contenido de un índice construido a medias
+     */
+    private void clear() {
+        postings.clear();
+        slotsByUserId.clear();
+        documents.clear();
+        freeSlots.clear();
+        alive.clear();
+        active.clear();
+        slotsByRol.clear();
+        changedWhileBuilding.clear();
+    }
+
+    private BitSet prefixMatches(String prefix) {
+        BitSet result = new BitSet(documents.size());
+        for (Postings slots : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            slots.addTo(result);
+        }
+        return result;
+    }
+
+    private void add(Document document) {
+        UserSummaryResponse.UserSummary summary = document.summary();
+        int slot;
+        if (freeSlots.isEmpty()) {
+            slot = documents.size();
+            documents.add(document);
+        } else {
+            slot = freeSlots.pop();
+            documents.set(slot, document);
+        }
+        slotsByUserId.put(summary.id(), slot);
+
+        for (String term : document.terms()) {
+            postings.computeIfAbsent(term, key -> new Postings()).add(slot);
+        }
+        alive.set(slot);
+        active.set(slot, Boolean.TRUE.equals(summary.estado()));
+        slotsByRol.computeIfAbsent(summary.rol(), key -> new BitSet()).set(slot);
+    }
+
+    private void remove(Long userId) {
+        Integer slot = slotsByUserId.remove(userId);
+        if (slot == null) {
+            return;
+        }
+        Document document = documents.get(slot);
+
+        for (String term : document.terms()) {
+            Postings slots = postings.get(term);
+            slots.remove(slot);
+            if (slots.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+        alive.clear(slot);
+        active.clear(slot);
+        slotsByRol.get(document.summary().rol()).clear(slot);
+        documents.set(slot, null);
+        freeSlots.push(slot);
+    }
+
+    private static Document document(User user) {
+        return new Document(
+                new UserSummaryResponse.UserSummary(
+                        user.getId(), user.getNombres(), user.getApellidos(),
+                        user.getEmail(), user.getRol(), user.getEstado()
+                ),
+                terms(user.getNombres(), user.getApellidos(), user.getEmail(), user.getDni())
+        );
+    }
+
+    /**
+     * Términos indexados de un usuario, sin repetir
+     */
+    private static String[] terms(String nombres, String apellidos, String email, String dni) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String field : new String[]{nombres, apellidos, email, dni}) {
+            if (field != null) {
+                Collections.addAll(terms, tokenize(field));
+            }
+        }
+        return terms.toArray(String[]::new);
+    }
+
+    /**
+     * Separa un texto en términos en minúsculas y sin tildes ("José Pérez" -> "jose", "perez")
+     */
+    private static String[] tokenize(String text) {
+        String folded = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        return Arrays.stream(NON_ALPHANUMERIC.split(folded))
+                .filter(term -> !term.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    private record Document(UserSummaryResponse.UserSummary summary, String[] terms) {
+
+        /**
+         * Indica si cada prefijo es el comienzo de alguno de los términos del usuario
+         */
+        boolean matchesAll(List<String> prefixes) {
+            for (String prefix : prefixes) {
+                boolean found = false;
+                for (String term : terms) {
+                    if (term.startsWith(prefix)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Slots de un término. Mientras son pocos se guardan en un arreglo ordenado (búsqueda binaria para
+     * agregar y quitar); al superar {@link #MAX_SORTED} se pasan a un BitSet, así los términos muy comunes
+     * ("gmail", "com") se agregan y quitan en O(1) y se combinan con el resultado con un solo OR
+     */
+    static final class Postings {
+        static final int MAX_SORTED = 4096;
+
+        private int[] sorted = new int[2];
+        private int size = 0;
+        private BitSet bits;
+
+        void add(int slot) {
+            if (bits != null) {
+                bits.set(slot);
+                return;
+            }
+            int index = Arrays.binarySearch(sorted, 0, size, slot);
+            if (index >= 0) {
+                return;
+            }
+            if (size == MAX_SORTED) {
+                bits = new BitSet();
+                for (int i = 0; i < size; i++) {
+                    bits.set(sorted[i]);
+                }
+                bits.set(slot);
+                sorted = null;
+                return;
+            }
+            int insertAt = -index - 1;
+            if (size == sorted.length) {
+                sorted = Arrays.copyOf(sorted, Math.min(size * 2, MAX_SORTED));
+            }
+            System.arraycopy(sorted, insertAt, sorted, insertAt + 1, size - insertAt);
+            sorted[insertAt] = slot;
+            size++;
+        }
+
+        void remove(int slot) {
+            if (bits != null) {
+                bits.clear(slot);
+                return;
+            }
+            int index = Arrays.binarySearch(sorted, 0, size, slot);
+            if (index >= 0) {
+                System.arraycopy(sorted, index + 1, sorted, index, size - index - 1);
+                size--;
+            }
+        }
+
+        boolean isEmpty() {
+            return bits != null ? bits.isEmpty() : size == 0;
+        }
+
+        boolean contains(int slot) {
+            return bits != null ? bits.get(slot) : Arrays.binarySearch(sorted, 0, size, slot) >= 0;
+        }
+
+        /**
+         * Marca los slots del término en el resultado
+         */
+        void addTo(BitSet result) {
+            if (bits != null) {
+                result.or(bits);
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                result.set(sorted[i]);
+            }
+        }
+    }
+
+}
@@ -2,26 +2,31 @@ package com.lp.gestionusuariosroles.user.service;
 
 import com.lp.gestionusuariosroles.auth.service.AuthService;
 import com.lp.gestionusuariosroles.auth.service.JwtService;
+import com.lp.gestionusuariosroles.auth.service.SessionClaims;
+import com.lp.gestionusuariosroles.config.CachingUserDetailsService;
+import com.lp.gestionusuariosroles.config.SessionCookie;
+import com.lp.gestionusuariosroles.config.SessionUser;
 import com.lp.gestionusuariosroles.exceptions.InvalidPasswordException;
 import com.lp.gestionusuariosroles.exceptions.PasswordMismatchException;
 import com.lp.gestionusuariosroles.user.controller.*;
+import com.lp.gestionusuariosroles.user.repository.Rol;
 import com.lp.gestionusuariosroles.user.repository.User;
 import com.lp.gestionusuariosroles.user.repository.UserRepository;
-import io.jsonwebtoken.Claims;
+import com.lp.gestionusuariosroles.user.repository.UserSummaryView;
+import com.lp.gestionusuariosroles.validation.InputValidator;
 import jakarta.persistence.EntityNotFoundException;
-import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDate;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -33,9 +38,19 @@ public class UserService {
     private final JwtService jwtService;
     private final PasswordEncoder passwordEncoder;
     private final AuthService authService;
+    private final CachingUserDetailsService userDetailsService;
+    private final InputValidator inputValidator;
+    private final SessionProfileCache profileCache;
+    private final UserTotalCount userTotalCount;
+    private final UserSearchIndex searchIndex;
+    private final UserCounters userCounters;
+    private final UserUniquenessFilter uniquenessFilter;
+
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
 
     /**
-     * Devuelve los datos del usuario en sesión en formato UserDataResponse
+     * Devuelve los datos del usuario en sesión en formato UserDataResponse.
+     * Solo consulta la Base de Datos si el perfil en caché no corresponde a la versión vigente
      *
      * @param request - Cookie que contiene el JWT
      * @return Los datos del usuario en sesión (excepto la contraseña)
@@ -43,21 +58,45 @@ public class UserService {
      */
     @Transactional(readOnly = true)
     public UserDataResponse getUserInSessionData(HttpServletRequest request) {
-        Cookie[] cookies = request.getCookies();
-        if (cookies != null) {
-            for (Cookie cookie : cookies) {
-                if (cookie.getName().equals("USER_SESSION")) {
-                    Claims claims = jwtService.extractPayload(cookie.getValue());
-                    String email = claims.getSubject();
-
-                    User user = repository.findByEmail(email)
-                            .orElseThrow(() -> new EntityNotFoundException("Usuario no encontrado"));
-
-                    return toDataResponse(user);
-                }
-            }
+        SessionClaims session = getSessionIdentity(request);
+        if (session == null) {
+            return null;
+        }
+
+        UserDataResponse cached = profileCache.get(session.userId(), session.profileVersion());
+        if (cached != null) {
+            return cached;
         }
-        return null;
+
+        UserDataResponse profile = repository.findDataById(session.userId())
+                .orElseThrow(() -> new EntityNotFoundException("Usuario no encontrado"));
+        profileCache.put(session.profileVersion(), profile);
+        return profile;
+    }
+
+    /**
+     * Devuelve la identidad (id, email y nombre) del usuario en sesión.
+     * Se toma de los claims verificados del JWT cuando la versión de perfil del token es la vigente;
+     * si no (perfil modificado o token emitido sin esos claims), se consulta la Base de Datos
+     *
+     * @param request - Cookie que contiene el JWT
+     * @return La identidad del usuario en sesión, o null si la solicitud no trae JWT
+     * @throws EntityNotFoundException - Si el usuario no existe
+     */
+    @Transactional(readOnly = true)
+    public SessionClaims getSessionIdentity(HttpServletRequest request) {
+        SessionClaims claims = jwtService.getSessionClaims(request);
+        if (claims == null) {
+            return null;
+        }
+        if (claims.userId() != null && isProfileVersionCurrent(claims)) {
+            return claims;
+        }
+
+        User user = repository.findByEmail(claims.email())
+                .orElseThrow(() -> new EntityNotFoundException("Usuario no encontrado"));
+        profileCache.put(user.getProfileVersion(), toDataResponse(user));
+        return SessionClaims.of(user);
     }
 
     /**
@@ -68,9 +107,46 @@ public class UserService {
     @Transactional(readOnly = true)
     public UserSummaryResponse getAllUsers(int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        Page<User> usersPage = repository.findAll(pageable);
+        Page<UserSummaryResponse.UserSummary> usersPage = repository.findAllBy(pageable);
+
+        return new UserSummaryResponse(
+                usersPage.getContent(),
+                usersPage.getTotalPages(),
+                (int) usersPage.getTotalElements(),
+                usersPage.getNumber(),
+                usersPage.getSize()
+        );
+    }
 
-        List<UserSummaryResponse.UserSummary> content = usersPage.getContent().stream()
+    /**
+     * Devuelve una página de usuarios a partir de un cursor (paginación por clave, sin OFFSET).
+     * Cada página cuesta lo mismo sin importar su profundidad, y el total solo se calcula si se pide
+     *
+     * @param cursor Cursor devuelto por la página anterior (null o vacío para la primera página)
+     * @param size Cantidad de usuarios por página (1 a 100)
+     * @param sort Orden de la lista; el cursor solo es válido para el orden con que se generó
+     * @param includeTotal Si se incluye el total de usuarios (valor en caché por unos segundos)
+     * @return Página de usuarios en formato {@link UserCursorResponse}
+     * @throws IllegalArgumentException Si el tamaño o el cursor son inválidos
+     */
+    @Transactional(readOnly = true)
+    public UserCursorResponse getUsersByCursor(String cursor, int size, UserListSort sort, boolean includeTotal) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new IllegalArgumentException("El tamaño de página debe estar entre 1 y " + MAX_CURSOR_PAGE_SIZE);
+        }
+        UserCursor position = cursor == null || cursor.isBlank()
+                ? UserCursor.start(sort)
+                : UserCursor.decode(cursor, sort);
+
+        // Se pide una fila extra para saber si existe una página siguiente
+        List<UserSummaryView> users = switch (sort) {
+            case ID -> repository.findPageAfterId(position.id(), size + 1);
+            case APELLIDOS -> repository.findPageAfterApellidos(position.key(), position.id(), size + 1);
+        };
+        boolean hasNext = users.size() > size;
+        List<UserSummaryView> page = hasNext ? users.subList(0, size) : users;
+
+        List<UserSummaryResponse.UserSummary> content = page.stream()
                 .map(user -> new UserSummaryResponse.UserSummary(
                         user.getId(),
                         user.getNombres(),
@@ -80,15 +156,31 @@ public class UserService {
                         user.getEstado()
                 )).toList();
 
-        return new UserSummaryResponse(
+        return new UserCursorResponse(
                 content,
-                usersPage.getTotalPages(),
-                (int) usersPage.getTotalElements(),
-                usersPage.getNumber(),
-                usersPage.getSize()
+                hasNext ? UserCursor.after(sort, page.get(page.size() - 1)).encode() : null,
+                includeTotal ? userTotalCount.get() : null,
+                size
         );
     }
 
+    /**
+     * Busca usuarios por nombres, apellidos, email o DNI (por prefijo, sin distinguir mayúsculas ni tildes)
+     * en el índice en memoria, sin consultar la Base de Datos
+     *
+     * @param query Texto a buscar
+     * @param rol Rol por el que filtrar (opcional)
+     * @param estado Estado por el que filtrar (opcional)
+     * @param limit Cantidad máxima de usuarios a devolver (1 a 100)
+     * @return Resultados en formato {@link UserSearchResponse}
+     */
+    public UserSearchResponse searchUsers(String query, String rol, Boolean estado, int limit) {
+        if (limit < 1 || limit > MAX_CURSOR_PAGE_SIZE) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + MAX_CURSOR_PAGE_SIZE);
+        }
+        return searchIndex.search(query, rol, estado, limit);
+    }
+
     /**
      * Actualiza los datos de un usuario
      *
@@ -102,57 +194,43 @@ public class UserService {
         if (id == null || id < 0) {
             throw new IllegalArgumentException("El id del usuario es inválido");
         }
-        if (userDto == null) {
-            throw new IllegalArgumentException("Los datos del usuario no pueden ser nulos");
-        }
+        // Validaciones de formato antes de consultar la Base de Datos
+        inputValidator.validate(userDto);
 
         // Obtener el usuario por su id
         User user = repository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Usuario no encontrado"));
+        String previousEmail = user.getEmail();
+        String previousRol = user.getRol();
 
-        // Validaciones los datos antes de actualizarlos
+        // Aplicar los datos enviados
         if (userDto.nombres() != null) {
-            if (userDto.nombres().isBlank()) {
-                throw new IllegalArgumentException("El nombre no puede estar vacío");
-            }
             user.setNombres(userDto.nombres());
         }
 
         if (userDto.apellidos() != null) {
-            if (userDto.apellidos().isBlank()) {
-                throw new IllegalArgumentException("El apellido no puede estar vacío");
-            }
             user.setApellidos(userDto.apellidos());
         }
 
         if (userDto.email() != null) {
-            if (!userDto.email().matches("^[\\w-.]+@([\\w-]+\\.)+[\\w-]{2,4}$")) {
-                throw new IllegalArgumentException("Formato de email inválido");
-            }
             // Solo validar si el email cambió
-            if (!userDto.email().equals(user.getEmail()) && repository.existsByEmail(userDto.email())) {
+            if (!userDto.email().equals(user.getEmail()) && uniquenessFilter.emailExists(userDto.email())) {
                 throw new IllegalArgumentException("El email ya está registrado con otro usuario");
             }
             user.setEmail(userDto.email());
         }
 
         if (userDto.fechaNacimiento() != null) {
-            if (userDto.fechaNacimiento().isAfter(LocalDate.now())) {
-                throw new IllegalArgumentException("La fecha de nacimiento no puede ser futura");
-            }
             user.setFechaNacimiento(userDto.fechaNacimiento());
         }
 
         if (userDto.telefono() != null) {
-            if (userDto.telefono().length() != 9) {
-                throw new IllegalArgumentException("El teléfono debe tener 9 dígitos");
-            }
             user.setTelefono(userDto.telefono());
         }
 
         if (userDto.dni() != null) {
             // Solo validar si el DNI cambió
-            if (!userDto.dni().equals(user.getDni()) && repository.existsByDni(userDto.dni())) {
+            if (!userDto.dni().equals(user.getDni()) && uniquenessFilter.dniExists(userDto.dni())) {
                 throw new IllegalArgumentException("El dni ya está registrado con otro usuario");
             }
             user.setDni(userDto.dni());
@@ -162,8 +240,15 @@ public class UserService {
             user.setRol(userDto.rol());
         }
 
-        // Guardar los cambios
+        // Guardar los cambios con una nueva versión de perfil
+        user.setProfileVersion(user.getProfileVersion() + 1);
         User savedUser = repository.save(user);
+        uniquenessFilter.add(savedUser.getEmail(), savedUser.getDni());
+        searchIndex.upsert(savedUser);
+        userCounters.changed(previousRol, savedUser.getEstado(), savedUser.getRol(), savedUser.getEstado());
+
+        // Los detalles de usuario en caché llevan el email, el rol y la versión de perfil
+        userDetailsService.evict(previousEmail);
         return toDataResponse(savedUser);
     }
 
@@ -178,10 +263,8 @@ public class UserService {
         if (id == null || id < 0) {
             throw new IllegalArgumentException("El id del usuario es inválido");
         }
-        User user = repository.findById(id)
+        return repository.findDataById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Usuario no encontrado"));
-
-        return toDataResponse(user);
     }
 
     /**
@@ -198,42 +281,51 @@ public class UserService {
         }
         User user = repository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Usuario no encontrado"));
+        userCounters.changed(user.getRol(), user.getEstado(), user.getRol(), nuevoEstado);
         user.setEstado(nuevoEstado);
+        user.setProfileVersion(user.getProfileVersion() + 1);
+        searchIndex.upsert(user);
+        userDetailsService.evict(user.getEmail());
         if (!nuevoEstado) {
             authService.revokeAllTokensForUser(id);
         }
 
     }
 
-    @Transactional(readOnly = true)
-    public RolDistributionResponse getRolDistribution() {
-        List<Object[]> results = repository.countUsersByRol();
-        Map<String, Long> distribution = new HashMap<>();
+    /**
+     * Cierra todas las sesiones de los usuarios indicados
+     *
+     * @param userIds Ids de los usuarios a los que se les cerrará la sesión
+     */
+    @Transactional
+    public void forceLogout(List<Long> userIds) {
+        authService.forceLogout(userIds);
+    }
 
-        for (Object[] result : results) {
-            String rol = (String) result[0];
-            Long count = (Long) result[1];
-            distribution.put(rol, count);
-        }
+    /**
+     * Devuelve la cantidad de usuarios por rol, desde los contadores en memoria
+     *
+     * @return Distribución de usuarios por rol en formato {@link RolDistributionResponse}
+     */
+    public RolDistributionResponse getRolDistribution() {
+        Map<String, Long> distribution = userCounters.countByRol();
 
         // Asegurarse de que todos los roles estén presentes, incluso si no hay usuarios
-        if (!distribution.containsKey("ADMINISTRADOR")) {
-            distribution.put("ADMINISTRADOR", 0L);
-        }
-        if (!distribution.containsKey("SUPERVISOR")) {
-            distribution.put("SUPERVISOR", 0L);
-        }
-        if (!distribution.containsKey("EGRESADO")) {
-            distribution.put("EGRESADO", 0L);
+        for (Rol rol : Rol.values()) {
+            distribution.putIfAbsent(rol.name(), 0L);
         }
 
         return new RolDistributionResponse(distribution);
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Devuelve la cantidad de usuarios activos e inactivos, desde los contadores en memoria
+     *
+     * @return Métricas en formato {@link UserMetricsResponse}
+     */
     public UserMetricsResponse getUsersMetrics() {
-        long activeUsers = repository.countUsersByEstado(true);
-        long inactiveUsers = repository.countUsersByEstado(false);
+        long activeUsers = userCounters.countByEstado(true);
+        long inactiveUsers = userCounters.countByEstado(false);
         return new UserMetricsResponse(activeUsers, inactiveUsers);
     }
 
@@ -246,7 +338,7 @@ public class UserService {
      */
     @Transactional
     public UpdatePasswordResponse updatePassword(HttpServletRequest request, UpdatePasswordRequest passwordRequest){
-        User user = repository.findById(getUserInSessionData(request).id())
+        User user = repository.findById(getSessionIdentity(request).userId())
                 .orElseThrow(() -> new EntityNotFoundException("Usuario no encontrado"));
 
         if(!passwordEncoder.matches(passwordRequest.currentPassword(), user.getPassword())){
@@ -255,12 +347,13 @@ public class UserService {
         if(passwordEncoder.matches(passwordRequest.newPassword(), user.getPassword())){
             throw new PasswordMismatchException("La nueva contraseña no puede ser igual a la actual");
         }
-        if (!passwordRequest.newPassword().matches("^(?=.*[0-9])(?=.*[a-z])(?=.*[A-Z])(?=.*[@#$%^&+=])(?=\\S+$).{8,}$")) {
-            throw new InvalidPasswordException("La contraseña debe tener al menos 8 caracteres, una mayúscula, un número y un carácter especial");
+        if (!inputValidator.isStrongPassword(passwordRequest.newPassword())) {
+            throw new InvalidPasswordException(InputValidator.PASSWORD_RULES_MESSAGE);
         }
 
         String newPassword = passwordEncoder.encode(passwordRequest.newPassword());
         user.setPassword(newPassword);
+        userDetailsService.evict(user.getEmail());
 
         return new UpdatePasswordResponse("Contraseña actualizada correctamente", true);
     }
@@ -279,17 +372,37 @@ public class UserService {
             throw new IllegalArgumentException("El id del usuario es inválido");
         }
 
-        UserDataResponse userInSession = getUserInSessionData(request);
+        SessionClaims userInSession = getSessionIdentity(request);
         User user = repository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Usuario no encontrado"));
 
         repository.delete(user);
+        userDetailsService.evict(user.getEmail());
+        profileCache.evict(id);
+        searchIndex.delete(id);
+        userCounters.deleted(user.getRol(), user.getEstado());
 
-        if (id.equals(userInSession.id())) {
-            invalidateSessionCookie(request, response);
+        if (id.equals(userInSession.userId())) {
+            SessionCookie.clear(response);
         }
     }
 
+    /**
+     * Indica si el token fue emitido con la versión de perfil vigente, comparándola con la de los
+     * detalles de usuario que el filtro JWT ya cargó (desde caché) para esta solicitud
+     *
+     * @param claims Identidad que trae el JWT
+     * @return `true` si la identidad del token sigue vigente, `false` en caso contrario
+     */
+    private static boolean isProfileVersionCurrent(SessionClaims claims) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null
+                && authentication.getPrincipal() instanceof SessionUser sessionUser
+                && sessionUser.getUsername().equals(claims.email())
+                && claims.profileVersion() != null
+                && sessionUser.getProfileVersion() == claims.profileVersion();
+    }
+
     /**
     * Convierte un objeto {@link com.lp.gestionusuariosroles.user.repository.User} a uno {@link com.lp.gestionusuariosroles.user.controller.UserDataResponse}
     *
@@ -311,25 +424,4 @@ public class UserService {
         );
     }
 
-    /**
-     * Invalida y elimina las cookies del usuario eliminado en el servicio deleteUser
-     *
-     * @param request Objeto HttpServletRequest que contiene las cookies
-     * @param response Objeto HttpServletResponse
-     */
-    private void invalidateSessionCookie(HttpServletRequest request, HttpServletResponse response) {
-        Cookie[] cookies = request.getCookies();
-        if (cookies != null) {
-            for (Cookie cookie : cookies) {
-                if (cookie.getName().equals("USER_SESSION")) {
-                    cookie.setValue("");
-                    cookie.setPath("/");
-                    cookie.setMaxAge(0);
-                    response.addCookie(cookie);
-                    break;
-                }
-            }
-        }
-    }
-
 }
@@ -0,0 +1,48 @@
+package com.lp.gestionusuariosroles.user.service;
+
+import com.lp.gestionusuariosroles.user.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Total de usuarios guardado en memoria por un tiempo corto, para que la lista por cursor
+ * no ejecute un COUNT(*) sobre toda la tabla en cada página
+ */
+@Component
+public class UserTotalCount {
+
+    private final UserRepository repository;
+    private final long ttlNanos;
+    private volatile Snapshot snapshot;
+
+    public UserTotalCount(
+            UserRepository repository,
+            @Value("${application.users.total-count.ttl:30s}") Duration ttl
+    ) {
+        this.repository = repository;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Devuelve el total de usuarios, consultando la Base de Datos solo si el valor guardado expiró
+     *
+     * @return Total de usuarios (puede tener un atraso de hasta el tiempo de vida configurado)
+     */
+    public long get() {
+        long now = System.nanoTime();
+        Snapshot current = snapshot;
+        if (current != null && now - current.takenAt() < ttlNanos) {
+            return current.total();
+        }
+
+        long total = repository.count();
+        snapshot = new Snapshot(total, now);
+        return total;
+    }
+
+    private record Snapshot(long total, long takenAt) {
+    }
+
+}
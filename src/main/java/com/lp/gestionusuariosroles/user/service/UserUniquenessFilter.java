@@ -0,0 +1,319 @@
+package com.lp.gestionusuariosroles.user.service;
+
+import com.lp.gestionusuariosroles.user.repository.UserRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Filtros de Bloom en memoria sobre los emails y DNIs registrados, para que las verificaciones de unicidad
+ * de valores claramente nuevos no consulten la Base de Datos.
+ * -
+ * Si el filtro responde que el valor no existe, la respuesta es definitiva; si responde que podría existir,
+ * se confirma con la Base de Datos (email y DNI tienen índice único, que sigue siendo la garantía final).
+ * Mientras el filtro no está construido, todas las verificaciones van a la Base de Datos.
+ * -
+ * Se construye al iniciar la aplicación y se reconstruye periódicamente, lo que descarta los valores de
+ * usuarios eliminados y ajusta el tamaño a la cantidad de usuarios. Los valores nuevos se agregan al guardarlos
+ * (antes del commit: un valor de más solo produce un falso positivo).
+ * Para que una reconstrucción no pierda un valor cuya transacción confirma después de que se leyó la tabla,
+ * los valores con la transacción en curso se vuelven a agregar al filtro nuevo antes de reemplazar el actual,
+ * y los que confirman durante la reconstrucción también se agregan al filtro en construcción.
+ * -
+ * Las métricas se publican como "users.uniqueness.filter.*" con el tag "field" (email o dni)
+ */
+@Slf4j
+@Component
+public class UserUniquenessFilter {
+
+    private static final long MIN_CAPACITY = 10_000;
+
+    private final UserRepository repository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final double falsePositiveRate;
+
+    private final Check email;
+    private final Check dni;
+
+    // Los agregados toman el bloqueo de lectura (los filtros admiten escrituras concurrentes);
+    // el inicio de una reconstrucción y el reemplazo de los filtros toman el de escritura
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile Filters filters;
+    // Filtros en construcción: los valores guardados mientras se recorre la tabla se agregan también aquí
+    private volatile Filters building;
+    // Valores agregados cuya transacción todavía no terminó
+    private final Set<Pending> inFlight = ConcurrentHashMap.newKeySet();
+
+    public UserUniquenessFilter(
+            UserRepository repository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${application.users.uniqueness-filter.false-positive-rate:0.01}") double falsePositiveRate
+    ) {
+        this.repository = repository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.falsePositiveRate = falsePositiveRate;
+        this.email = new Check("email", Filters::emails, repository::existsByEmail, repository::findExistingEmails);
+        this.dni = new Check("dni", Filters::dnis, repository::existsByDni, repository::findExistingDnis);
+        email.bindTo(meterRegistry);
+        dni.bindTo(meterRegistry);
+    }
+
+    /**
+     * Indica si el email ya está registrado
+     */
+    public boolean emailExists(String value) {
+        return email.exists(value);
+    }
+
+    /**
+     * Indica si el DNI ya está registrado
+     */
+    public boolean dniExists(String value) {
+        return dni.exists(value);
+    }
+
+    /**
+     * Emails de la lista que ya están registrados; solo se consultan en la Base de Datos los que el filtro no descarta
+     */
+    public Set<String> existingEmails(Collection<String> values) {
+        return email.existing(values);
+    }
+
+    /**
+     * DNIs de la lista que ya están registrados; solo se consultan en la Base de Datos los que el filtro no descarta
+     */
+    public Set<String> existingDnis(Collection<String> values) {
+        return dni.existing(values);
+    }
+
+    /**
+     * Agrega el email y el DNI de un usuario creado o modificado
+     */
+    public void add(String emailValue, String dniValue) {
+        Pending pending = new Pending(emailValue, dniValue);
+        lock.readLock().lock();
+        try {
+            pending.addTo(filters);
+            pending.addTo(building);
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                inFlight.add(pending);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        completed(pending);
+                    }
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * La transacción del valor terminó: si hay una reconstrucción en curso, su recorrido pudo haber leído
+     * la tabla antes del commit, así que el valor se agrega también al filtro en construcción
+     */
+    private void completed(Pending pending) {
+        lock.readLock().lock();
+        try {
+            inFlight.remove(pending);
+            pending.addTo(building);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Construye los filtros recorriendo los emails y DNIs en streaming y reemplaza los actuales.
+     * Si falla, se conservan los filtros anteriores (o se sigue consultando la Base de Datos)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(
+            initialDelayString = "${application.users.uniqueness-filter.rebuild-interval:PT6H}",
+            fixedDelayString = "${application.users.uniqueness-filter.rebuild-interval:PT6H}"
+    )
+    public void rebuild() {
+        long start = System.nanoTime();
+        Filters fresh;
+        try {
+            long capacity = Math.max(MIN_CAPACITY, repository.count() * 2);
+            fresh = new Filters(new BloomFilter(capacity, falsePositiveRate), new BloomFilter(capacity, falsePositiveRate));
+            lock.writeLock().lock();
+            try {
+                building = fresh;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<Object[]> rows = repository.streamEmailsAndDnis()) {
+                    rows.forEach(row -> {
+                        fresh.emails().add((String) row[0]);
+                        fresh.dnis().add((String) row[1]);
+                    });
+                }
+            });
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                building = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.error("No se pudieron construir los filtros de unicidad de email y DNI", e);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            inFlight.forEach(pending -> pending.addTo(fresh));
+            filters = fresh;
+            building = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Filtros de unicidad de email y DNI construidos en {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private record Filters(BloomFilter emails, BloomFilter dnis) {
+    }
+
+    /**
+     * Email y DNI de un guardado; se compara por identidad para que dos guardados iguales se sigan por separado
+     */
+    private static final class Pending {
+        private final String email;
+        private final String dni;
+
+        private Pending(String email, String dni) {
+            this.email = email;
+            this.dni = dni;
+        }
+
+        private void addTo(Filters target) {
+            if (target == null) {
+                return;
+            }
+            if (email != null) {
+                target.emails().add(email);
+            }
+            if (dni != null) {
+                target.dnis().add(dni);
+            }
+        }
+    }
+
+    /**
+     * Verificación de unicidad de un campo, con sus contadores de resultados
+     */
+    private final class Check {
+        private final String field;
+        private final Function<Filters, BloomFilter> filterOf;
+        private final Predicate<String> existsQuery;
+        private final Function<Collection<String>, List<String>> existingQuery;
+
+        // Descartados por el filtro, confirmados en la Base de Datos y falsos positivos del filtro
+        private final AtomicLong definitelyNew = new AtomicLong();
+        private final AtomicLong confirmed = new AtomicLong();
+        private final AtomicLong falsePositives = new AtomicLong();
+
+        private Check(
+                String field,
+                Function<Filters, BloomFilter> filterOf,
+                Predicate<String> existsQuery,
+                Function<Collection<String>, List<String>> existingQuery
+        ) {
+            this.field = field;
+            this.filterOf = filterOf;
+            this.existsQuery = existsQuery;
+            this.existingQuery = existingQuery;
+        }
+
+        boolean exists(String value) {
+            BloomFilter filter = current();
+            if (filter != null && !filter.mightContain(value)) {
+                definitelyNew.incrementAndGet();
+                return false;
+            }
+
+            boolean exists = existsQuery.test(value);
+            if (filter != null) {
+                (exists ? confirmed : falsePositives).incrementAndGet();
+            }
+            return exists;
+        }
+
+        Set<String> existing(Collection<String> values) {
+            BloomFilter filter = current();
+            List<String> candidates = filter == null
+                    ? new ArrayList<>(values)
+                    : values.stream().filter(filter::mightContain).toList();
+            Set<String> existing = candidates.isEmpty() ? new HashSet<>() : new HashSet<>(existingQuery.apply(candidates));
+
+            if (filter != null) {
+                definitelyNew.addAndGet(values.size() - candidates.size());
+                confirmed.addAndGet(existing.size());
+                falsePositives.addAndGet(candidates.size() - existing.size());
+            }
+            return existing;
+        }
+
+        private BloomFilter current() {
+            Filters current = filters;
+            return current == null ? null : filterOf.apply(current);
+        }
+
+        /**
+         * Tasa observada de falsos positivos: de los valores nuevos, cuántos el filtro no pudo descartar
+         */
+        private double observedFalsePositiveRate() {
+            long newValues = definitelyNew.get() + falsePositives.get();
+            return newValues == 0 ? 0 : (double) falsePositives.get() / newValues;
+        }
+
+        private void bindTo(MeterRegistry registry) {
+            Gauge.builder("users.uniqueness.filter.false.positive.rate", this, Check::observedFalsePositiveRate)
+                    .tag("field", field)
+                    .description("Tasa observada de falsos positivos del filtro de unicidad")
+                    .register(registry);
+            Gauge.builder("users.uniqueness.filter.expected.false.positive.rate", this,
+                            check -> {
+                                BloomFilter filter = check.current();
+                                return filter == null ? Double.NaN : filter.expectedFalsePositiveRate();
+                            })
+                    .tag("field", field)
+                    .description("Tasa teórica de falsos positivos según los valores agregados al filtro")
+                    .register(registry);
+            for (Map.Entry<String, AtomicLong> result : Map.of(
+                    "definitely_new", definitelyNew,
+                    "confirmed", confirmed,
+                    "false_positive", falsePositives
+            ).entrySet()) {
+                FunctionCounter.builder("users.uniqueness.filter.checks", result.getValue(), AtomicLong::get)
+                        .tag("field", field)
+                        .tag("result", result.getKey())
+                        .register(registry);
+            }
+        }
+    }
+
+}
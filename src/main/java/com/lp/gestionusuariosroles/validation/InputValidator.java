@@ -0,0 +1,206 @@
+package com.lp.gestionusuariosroles.validation;
+
+import com.lp.gestionusuariosroles.auth.controller.RegisterRequest;
+import com.lp.gestionusuariosroles.user.controller.UserDto;
+import com.lp.gestionusuariosroles.user.repository.Rol;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Validaciones de formato compartidas por el registro, la actualización de usuarios y el cambio de contraseña.
+ * -
+ * Cada regla se evalúa con un recorrido simple de la cadena (sin expresiones regulares ni objetos temporales),
+ * respetando las mismas reglas que antes se aplicaban con String.matches:
+ * - email: ^[\w-.]+@([\w-]+\.)+[\w-]{2,4}$
+ * - contraseña: ^(?=.*[0-9])(?=.*[a-z])(?=.*[A-Z])(?=.*[@#$%^&+=])(?=\S+$).{8,}$
+ * - teléfono: 9 dígitos
+ * - dni: 8 dígitos
+ * - rol: uno de los roles de {@link Rol}
+ */
+@Component
+public class InputValidator {
+
+    public static final String PASSWORD_RULES_MESSAGE =
+            "La contraseña debe tener al menos 8 caracteres, una mayúscula, un número y un carácter especial";
+
+    private static final int TELEFONO_LENGTH = 9;
+    private static final int DNI_LENGTH = 8;
+
+    /**
+     * Valida todos los campos de una solicitud de registro en una sola pasada
+     *
+     * @param request Datos del nuevo usuario
+     * @throws IllegalArgumentException Con el mensaje de la primera regla que no se cumpla
+     */
+    public void validate(RegisterRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("La solicitud de registro no puede ser nula");
+        }
+        if (request.email() == null || request.email().isBlank()) {
+            throw new IllegalArgumentException("El email es obligatorio");
+        }
+        if (!isValidEmail(request.email())) {
+            throw new IllegalArgumentException("Formato de email inválido");
+        }
+        if (!isStrongPassword(request.password())) {
+            throw new IllegalArgumentException(PASSWORD_RULES_MESSAGE);
+        }
+        if (!isValidTelefono(request.telefono())) {
+            throw new IllegalArgumentException("El teléfono debe tener 9 dígitos");
+        }
+        if (!isValidDni(request.dni())) {
+            throw new IllegalArgumentException("El dni debe tener 8 dígitos");
+        }
+        if (!Rol.isValid(request.rol())) {
+            throw new IllegalArgumentException("El rol es inválido");
+        }
+        if (request.fechaNacimiento() != null && request.fechaNacimiento().isAfter(LocalDate.now())) {
+            throw new IllegalArgumentException("La fecha de nacimiento no puede ser futura");
+        }
+    }
+
+    /**
+     * Valida los campos enviados (no nulos) de una actualización de usuario
+     *
+     * @param userDto Datos a actualizar; los campos nulos no se modifican y no se validan
+     * @throws IllegalArgumentException Con el mensaje de la primera regla que no se cumpla
+     */
+    public void validate(UserDto userDto) {
+        if (userDto == null) {
+            throw new IllegalArgumentException("Los datos del usuario no pueden ser nulos");
+        }
+        if (userDto.nombres() != null && userDto.nombres().isBlank()) {
+            throw new IllegalArgumentException("El nombre no puede estar vacío");
+        }
+        if (userDto.apellidos() != null && userDto.apellidos().isBlank()) {
+            throw new IllegalArgumentException("El apellido no puede estar vacío");
+        }
+        if (userDto.email() != null && !isValidEmail(userDto.email())) {
+            throw new IllegalArgumentException("Formato de email inválido");
+        }
+        if (userDto.fechaNacimiento() != null && userDto.fechaNacimiento().isAfter(LocalDate.now())) {
+            throw new IllegalArgumentException("La fecha de nacimiento no puede ser futura");
+        }
+        if (userDto.telefono() != null && !isValidTelefono(userDto.telefono())) {
+            throw new IllegalArgumentException("El teléfono debe tener 9 dígitos");
+        }
+        if (userDto.dni() != null && !isValidDni(userDto.dni())) {
+            throw new IllegalArgumentException("El dni debe tener 8 dígitos");
+        }
+        if (userDto.rol() != null && !Rol.isValid(userDto.rol())) {
+            throw new IllegalArgumentException("El rol es inválido");
+        }
+    }
+
+    /**
+     * Verifica el formato del email: una parte local de [\w-.], una arroba y un dominio con al menos
+     * un punto, etiquetas no vacías de [\w-] y una última etiqueta de 2 a 4 caracteres
+     */
+    public boolean isValidEmail(String email) {
+        if (email == null) {
+            return false;
+        }
+        int length = email.length();
+        int at = -1;
+        for (int i = 0; i < length; i++) {
+            char c = email.charAt(i);
+            if (c == '@') {
+                at = i;
+                break;
+            }
+            if (!isWordChar(c) && c != '-' && c != '.') {
+                return false;
+            }
+        }
+        if (at < 1) {
+            return false;
+        }
+
+        int labelStart = at + 1;
+        int labels = 0;
+        for (int i = labelStart; i <= length; i++) {
+            char c = i < length ? email.charAt(i) : '.';
+            if (c == '.') {
+                int labelLength = i - labelStart;
+                if (labelLength == 0) {
+                    return false;
+                }
+                labels++;
+                if (i == length && (labelLength < 2 || labelLength > 4)) {
+                    return false;
+                }
+                labelStart = i + 1;
+            } else if (!isWordChar(c) && c != '-') {
+                return false;
+            }
+        }
+        return labels >= 2;
+    }
+
+    /**
+     * Verifica que la contraseña tenga al menos 8 caracteres, sin espacios, con un número,
+     * una minúscula, una mayúscula y un carácter especial (@#$%^&+=)
+     */
+    public boolean isStrongPassword(String password) {
+        if (password == null) {
+            return false;
+        }
+        boolean digit = false;
+        boolean lower = false;
+        boolean upper = false;
+        boolean special = false;
+        int codePoints = 0;
+        for (int i = 0; i < password.length(); ) {
+            int c = password.codePointAt(i);
+            if (isWhitespaceOrLineTerminator(c)) {
+                return false;
+            }
+            if (c >= '0' && c <= '9') {
+                digit = true;
+            } else if (c >= 'a' && c <= 'z') {
+                lower = true;
+            } else if (c >= 'A' && c <= 'Z') {
+                upper = true;
+            } else if (c == '@' || c == '#' || c == '$' || c == '%' || c == '^' || c == '&' || c == '+' || c == '=') {
+                special = true;
+            }
+            codePoints++;
+            i += Character.charCount(c);
+        }
+        return codePoints >= 8 && digit && lower && upper && special;
+    }
+
+    public boolean isValidTelefono(String telefono) {
+        return isDigits(telefono, TELEFONO_LENGTH);
+    }
+
+    public boolean isValidDni(String dni) {
+        return isDigits(dni, DNI_LENGTH);
+    }
+
+    private static boolean isDigits(String value, int expectedLength) {
+        if (value == null || value.length() != expectedLength) {
+            return false;
+        }
+        for (int i = 0; i < expectedLength; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Equivalente a \w sin UNICODE_CHARACTER_CLASS: [a-zA-Z_0-9]
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    // \s de Java ([ \t\n\x0B\f\r]) más los terminadores de línea que "." no acepta
+    private static boolean isWhitespaceOrLineTerminator(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r'
+                || c == 0x85 || c == 0x2028 || c == 0x2029;
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.lp.gestionusuariosroles.auth.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryTwoFactorCodeStoreTest {
+
+    private static final String EMAIL = "ana@example.com";
+
+    private final InMemoryTwoFactorCodeStore store = new InMemoryTwoFactorCodeStore(Duration.ofMinutes(5), 3, 1000);
+
+    @Test
+    void issuesSixDigitCodes() {
+        assertTrue(store.issue(EMAIL).matches("\\d{6}"));
+    }
+
+    @Test
+    void acceptsTheCodeOnlyOnce() {
+        String code = store.issue(EMAIL);
+
+        assertTrue(store.verify(EMAIL, code));
+        assertFalse(store.verify(EMAIL, code));
+    }
+
+    @Test
+    void rejectsWrongCodesUnknownEmailsAndNull() {
+        String code = store.issue(EMAIL);
+
+        assertFalse(store.verify(EMAIL, wrong(code)));
+        assertFalse(store.verify("otro@example.com", code));
+        assertFalse(store.verify(EMAIL, null));
+        assertTrue(store.verify(EMAIL, code));
+    }
+
+    @Test
+    void discardsTheCodeAfterTooManyFailedAttempts() {
+        String code = store.issue(EMAIL);
+        for (int i = 0; i < 3; i++) {
+            assertFalse(store.verify(EMAIL, wrong(code)));
+        }
+
+        assertFalse(store.verify(EMAIL, code));
+    }
+
+    @Test
+    void issuingAgainReplacesThePreviousCode() {
+        String first = store.issue(EMAIL);
+        String second;
+        do {
+            second = store.issue(EMAIL);
+        } while (second.equals(first));
+
+        assertFalse(store.verify(EMAIL, first));
+        assertTrue(store.verify(EMAIL, second));
+    }
+
+    @Test
+    void onlyOneOfManyConcurrentVerificationsWins() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 200; round++) {
+                String code = store.issue(EMAIL);
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Boolean>> results = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        return store.verify(EMAIL, code);
+                    }));
+                }
+                start.countDown();
+
+                int accepted = 0;
+                for (Future<Boolean> result : results) {
+                    if (result.get(5, TimeUnit.SECONDS)) {
+                        accepted++;
+                    }
+                }
+                assertEquals(1, accepted);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String wrong(String code) {
+        return code.equals("123456") ? "654321" : "123456";
+    }
+
+}
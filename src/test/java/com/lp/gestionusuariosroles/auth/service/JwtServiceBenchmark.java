@@ -0,0 +1,84 @@
+package com.lp.gestionusuariosroles.auth.service;
+
+import com.lp.gestionusuariosroles.user.repository.Rol;
+import com.lp.gestionusuariosroles.user.repository.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de verificar el JWT de una solicitud autenticada.
+ * -
+ * legacyPerRequest reproduce el flujo anterior: el filtro (extractUsername), isTokenValid (extractUsername
+ * y extractExpiration) y UserService.getUserInSessionData (extractPayload), cada uno decodificando la clave
+ * y construyendo un parser nuevo. singleParsePerRequest es el flujo actual: una sola verificación con el
+ * parser construido al iniciar y los mismos claims para todos los usos.
+ * -
+ * Ejecución: mvn test-compile y luego
+ * java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)"
+ * org.openjdk.jmh.Main JwtServiceBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private static final String SECRET_KEY = "c2VjcmV0by1kZS1wcnVlYmEtcGFyYS1lbC1iZW5jaG1hcmstZGUtand0LTI1Ni1iaXRz";
+
+    private final JwtService jwtService = new JwtService();
+    private String token;
+    private String email;
+
+    @Setup
+    public void setUp() {
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET_KEY);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 3_600_000L);
+        jwtService.init();
+
+        User user = User.builder()
+                .id(42L)
+                .nombres("María")
+                .apellidos("Fernández")
+                .email("maria.fernandez@correo.pe")
+                .rol(Rol.SUPERVISOR.name())
+                .build();
+        token = jwtService.generateToken(user);
+        email = user.getEmail();
+    }
+
+    @Benchmark
+    public Object legacyPerRequest() {
+        String username = legacyParse(token).getSubject();
+        boolean valid = legacyParse(token).getSubject().equals(email)
+                && !legacyParse(token).getExpiration().before(new Date());
+        Claims payload = legacyParse(token);
+        return valid && username != null ? payload : null;
+    }
+
+    @Benchmark
+    public Object singleParsePerRequest() {
+        Claims claims = jwtService.extractPayload(token);
+        boolean valid = claims.getSubject().equals(email)
+                && !claims.getExpiration().before(new Date())
+                && jwtService.isSessionVersionCurrent(claims, 0);
+        return valid ? claims : null;
+    }
+
+    private static Claims legacyParse(String token) {
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET_KEY)))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.lp.gestionusuariosroles.auth.service;
+
+import com.lp.gestionusuariosroles.exceptions.TooManyAttemptsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginAttemptLimiterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void emailBucketAllowsItsCapacityThenRejects() {
+        LoginAttemptLimiter limiter = limiter(3, 100, 5, Duration.ofMinutes(15));
+
+        for (int i = 0; i < 3; i++) {
+            limiter.checkAllowed("ana@example.com", "10.0.0." + i);
+        }
+        TooManyAttemptsException e = assertThrows(TooManyAttemptsException.class,
+                () -> limiter.checkAllowed("ana@example.com", "10.0.0.9"));
+
+        assertEquals(3600, e.getRetryAfterSeconds());
+        assertEquals(1, rejected("email"));
+        // Otro email no comparte el bucket
+        limiter.checkAllowed("luis@example.com", "10.0.0.9");
+    }
+
+    @Test
+    void emailIsNormalizedBeforeCounting() {
+        LoginAttemptLimiter limiter = limiter(2, 100, 5, Duration.ofMinutes(15));
+
+        limiter.checkAllowed("Ana@Example.com", "10.0.0.1");
+        limiter.checkAllowed("  ana@example.com ", "10.0.0.1");
+
+        assertThrows(TooManyAttemptsException.class, () -> limiter.checkAllowed("ANA@EXAMPLE.COM", "10.0.0.1"));
+    }
+
+    @Test
+    void ipBucketLimitsAttemptsAcrossEmails() {
+        LoginAttemptLimiter limiter = limiter(100, 2, 5, Duration.ofMinutes(15));
+
+        limiter.checkAllowed("a@example.com", "10.0.0.1");
+        limiter.checkAllowed("b@example.com", "10.0.0.1");
+
+        assertThrows(TooManyAttemptsException.class, () -> limiter.checkAllowed("c@example.com", "10.0.0.1"));
+        assertEquals(1, rejected("ip"));
+        limiter.checkAllowed("c@example.com", "10.0.0.2");
+    }
+
+    @Test
+    void requestsRejectedByIpDoNotDrainTheEmailBucket() {
+        LoginAttemptLimiter limiter = limiter(3, 1, 5, Duration.ofMinutes(15));
+        limiter.checkAllowed("otro@example.com", "10.0.0.66");
+
+        for (int i = 0; i < 10; i++) {
+            assertThrows(TooManyAttemptsException.class, () -> limiter.checkAllowed("ana@example.com", "10.0.0.66"));
+        }
+
+        assertEquals(10, rejected("ip"));
+        assertEquals(0, rejected("email"));
+        // La víctima conserva todos sus intentos desde otras IPs
+        for (int i = 0; i < 3; i++) {
+            limiter.checkAllowed("ana@example.com", "10.0.1." + i);
+        }
+    }
+
+    @Test
+    void consecutiveFailuresLockTheEmail() {
+        LoginAttemptLimiter limiter = limiter(100, 100, 3, Duration.ofMinutes(15));
+
+        for (int i = 0; i < 3; i++) {
+            limiter.checkAllowed("ana@example.com", "10.0.0.1");
+            limiter.recordFailure("ana@example.com");
+        }
+        TooManyAttemptsException e = assertThrows(TooManyAttemptsException.class,
+                () -> limiter.checkAllowed("ana@example.com", "10.0.0.1"));
+
+        assertTrue(e.getRetryAfterSeconds() > 800 && e.getRetryAfterSeconds() <= 900, "retry " + e.getRetryAfterSeconds());
+        assertEquals(1, rejected("locked"));
+    }
+
+    @Test
+    void successResetsTheConsecutiveFailures() {
+        LoginAttemptLimiter limiter = limiter(100, 100, 3, Duration.ofMinutes(15));
+
+        limiter.recordFailure("ana@example.com");
+        limiter.recordFailure("ana@example.com");
+        limiter.recordSuccess("ana@example.com");
+        limiter.recordFailure("ana@example.com");
+        limiter.recordFailure("ana@example.com");
+
+        limiter.checkAllowed("ana@example.com", "10.0.0.1");
+    }
+
+    @Test
+    void lockoutExpires() throws InterruptedException {
+        LoginAttemptLimiter limiter = limiter(100, 100, 1, Duration.ofMillis(20));
+
+        limiter.recordFailure("ana@example.com");
+        assertThrows(TooManyAttemptsException.class, () -> limiter.checkAllowed("ana@example.com", "10.0.0.1"));
+
+        Thread.sleep(50);
+        limiter.checkAllowed("ana@example.com", "10.0.0.1");
+    }
+
+    @Test
+    void bucketRefillsOverTime() throws InterruptedException {
+        LoginAttemptLimiter limiter = new LoginAttemptLimiter(registry, 1000, Duration.ofMinutes(30),
+                1, Duration.ofMillis(20), 100, Duration.ofHours(1), 5, Duration.ofMinutes(15));
+
+        limiter.checkAllowed("ana@example.com", "10.0.0.1");
+        assertThrows(TooManyAttemptsException.class, () -> limiter.checkAllowed("ana@example.com", "10.0.0.1"));
+
+        Thread.sleep(50);
+        limiter.checkAllowed("ana@example.com", "10.0.0.1");
+    }
+
+    private LoginAttemptLimiter limiter(int emailCapacity, int ipCapacity, int maxFailures, Duration lockout) {
+        return new LoginAttemptLimiter(registry, 1000, Duration.ofMinutes(30),
+                emailCapacity, Duration.ofHours(1), ipCapacity, Duration.ofHours(1), maxFailures, lockout);
+    }
+
+    private double rejected(String reason) {
+        return registry.get("auth.login.rejected").tag("reason", reason).counter().count();
+    }
+
+}
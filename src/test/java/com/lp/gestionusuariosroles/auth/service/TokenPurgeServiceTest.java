@@ -0,0 +1,44 @@
+package com.lp.gestionusuariosroles.auth.service;
+
+import com.lp.gestionusuariosroles.auth.repository.PasswordResetTokenRepository;
+import com.lp.gestionusuariosroles.auth.repository.TokenRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TokenPurgeServiceTest {
+
+    private final TokenRepository repository = mock(TokenRepository.class);
+    private final TokenPurgeService service = new TokenPurgeService(
+            repository, mock(PasswordResetTokenRepository.class), Duration.ofDays(7), 100
+    );
+
+    @Test
+    void deletesRevokedAndExpiredTokensUntilABatchComesBackShort() {
+        when(repository.deleteRevokedBatch(100)).thenReturn(100, 100, 30);
+        when(repository.deleteExpiredBatch(any(), eq(100))).thenReturn(100, 0);
+
+        assertEquals(330, service.purgeExpiredAndRevokedTokens());
+
+        verify(repository, times(3)).deleteRevokedBatch(100);
+        verify(repository, times(2)).deleteExpiredBatch(any(), eq(100));
+    }
+
+    @Test
+    void expiredTokensAreKeptForTheRetention() {
+        when(repository.deleteExpiredBatch(any(), eq(100))).thenReturn(0);
+        Instant before = Instant.now().minus(Duration.ofDays(7));
+
+        service.purgeExpiredAndRevokedTokens();
+
+        verify(repository).deleteExpiredBatch(argThat(cutoff -> !cutoff.isBefore(before)
+                && !cutoff.isAfter(Instant.now().minus(Duration.ofDays(7)))), eq(100));
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.lp.gestionusuariosroles.auth.service;
+
+import com.lp.gestionusuariosroles.auth.repository.Token;
+import com.lp.gestionusuariosroles.auth.repository.TokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class TokenStatusCacheTest {
+
+    private TokenRepository repository;
+    private TokenStatusCache cache;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(TokenRepository.class);
+        cache = new TokenStatusCache(repository, new SimpleMeterRegistry(), 100, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void equalDigestsInDifferentArraysShareTheEntry() {
+        when(repository.findByTokenHash(any())).thenReturn(Optional.of(token(false)));
+
+        assertFalse(cache.isExpiredOrRevoked(TokenDigest.of("jwt-a")));
+        assertFalse(cache.isExpiredOrRevoked(TokenDigest.of("jwt-a")));
+
+        verify(repository, times(1)).findByTokenHash(any());
+    }
+
+    @Test
+    void differentDigestsAreCachedSeparately() {
+        when(repository.findByTokenHash(any())).thenReturn(Optional.of(token(false))).thenReturn(Optional.empty());
+
+        assertFalse(cache.isExpiredOrRevoked(TokenDigest.of("jwt-a")));
+        assertTrue(cache.isExpiredOrRevoked(TokenDigest.of("jwt-b")));
+
+        verify(repository, times(2)).findByTokenHash(any());
+    }
+
+    @Test
+    void revocationOverridesTheCachedStatus() {
+        when(repository.findByTokenHash(any())).thenReturn(Optional.of(token(false)));
+        assertFalse(cache.isExpiredOrRevoked(TokenDigest.of("jwt-a")));
+
+        cache.markRevoked(TokenDigest.of("jwt-a"));
+
+        assertTrue(cache.isExpiredOrRevoked(TokenDigest.of("jwt-a")));
+        verify(repository, times(1)).findByTokenHash(any());
+    }
+
+    @Test
+    void rejectsDigestsOfTheWrongLength() {
+        assertThrows(IllegalArgumentException.class, () -> cache.isExpiredOrRevoked(new byte[16]));
+    }
+
+    private static Token token(boolean revoked) {
+        return Token.builder().isExpired(false).isRevoked(revoked).build();
+    }
+
+}
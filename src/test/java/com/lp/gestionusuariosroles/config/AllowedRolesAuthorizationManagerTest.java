@@ -0,0 +1,70 @@
+package com.lp.gestionusuariosroles.config;
+
+import com.lp.gestionusuariosroles.user.repository.Rol;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AllowedRolesAuthorizationManagerTest {
+
+    private final AllowedRolesAuthorizationManager manager = new AllowedRolesAuthorizationManager();
+
+    @Test
+    void grantsOnlyTheListedRoles() throws Exception {
+        MethodInvocation invocation = invocation("adminOrSupervisor");
+
+        assertTrue(granted(user(Rol.ADMINISTRADOR), invocation));
+        assertTrue(granted(user(Rol.SUPERVISOR), invocation));
+        assertFalse(granted(user(Rol.EGRESADO), invocation));
+    }
+
+    @Test
+    void withoutRolesAnyAuthenticatedUserIsGranted() throws Exception {
+        MethodInvocation invocation = invocation("anyAuthenticated");
+
+        assertTrue(granted(user(Rol.EGRESADO), invocation));
+        assertFalse(granted(null, invocation));
+        assertFalse(granted(new AnonymousAuthenticationToken(
+                "key", "anonymous", AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")), invocation));
+    }
+
+    @Test
+    void authoritiesThatAreNotRolesGrantNothing() throws Exception {
+        Authentication other = UsernamePasswordAuthenticationToken.authenticated(
+                "ana@example.com", null, AuthorityUtils.createAuthorityList("ADMINISTRADOR"));
+
+        assertFalse(granted(other, invocation("adminOrSupervisor")));
+    }
+
+    private boolean granted(Authentication authentication, MethodInvocation invocation) {
+        return manager.authorize(() -> authentication, invocation).isGranted();
+    }
+
+    private static Authentication user(Rol rol) {
+        return UsernamePasswordAuthenticationToken.authenticated("ana@example.com", null, rol.authorities());
+    }
+
+    private static MethodInvocation invocation(String method) throws NoSuchMethodException {
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.getMethod()).thenReturn(Endpoints.class.getDeclaredMethod(method));
+        return invocation;
+    }
+
+    static class Endpoints {
+        @AllowedRoles({Rol.ADMINISTRADOR, Rol.SUPERVISOR})
+        void adminOrSupervisor() {
+        }
+
+        @AllowedRoles
+        void anyAuthenticated() {
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.lp.gestionusuariosroles.config;
+
+import com.lp.gestionusuariosroles.user.repository.Rol;
+import org.aopalliance.intercept.MethodInvocation;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authorization.method.PreAuthorizeAuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Costo de la verificación de roles por solicitud: máscara de bits de {@link AllowedRoles}
+ * frente a la expresión SpEL de @PreAuthorize que reemplazó.
+ * -
+ * Ejecución: mvn test-compile y luego
+ * java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)"
+ * org.openjdk.jmh.Main AllowedRolesBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AllowedRolesBenchmark {
+
+    private final AllowedRolesAuthorizationManager allowedRoles = new AllowedRolesAuthorizationManager();
+    private final PreAuthorizeAuthorizationManager preAuthorize = new PreAuthorizeAuthorizationManager();
+
+    private MethodInvocation allowedRolesInvocation;
+    private MethodInvocation preAuthorizeInvocation;
+    private Supplier<Authentication> rolAuthentication;
+    private Supplier<Authentication> stringAuthentication;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        Endpoints endpoints = new Endpoints();
+        allowedRolesInvocation = new SimpleMethodInvocation(endpoints, Endpoints.class.getDeclaredMethod("allowedRoles"));
+        preAuthorizeInvocation = new SimpleMethodInvocation(endpoints, Endpoints.class.getDeclaredMethod("preAuthorize"));
+
+        // Antes, cada usuario tenía una SimpleGrantedAuthority con el nombre del rol; ahora el propio Rol
+        Authentication withRol = UsernamePasswordAuthenticationToken.authenticated(
+                "ana@example.com", null, Rol.SUPERVISOR.authorities());
+        Authentication withString = UsernamePasswordAuthenticationToken.authenticated(
+                "ana@example.com", null, List.of(new SimpleGrantedAuthority("SUPERVISOR")));
+        rolAuthentication = () -> withRol;
+        stringAuthentication = () -> withString;
+    }
+
+    @Benchmark
+    public boolean allowedRolesMask() {
+        return allowedRoles.authorize(rolAuthentication, allowedRolesInvocation).isGranted();
+    }
+
+    @Benchmark
+    public boolean preAuthorizeExpression() {
+        return preAuthorize.authorize(stringAuthentication, preAuthorizeInvocation).isGranted();
+    }
+
+    public static class Endpoints {
+        @AllowedRoles({Rol.ADMINISTRADOR, Rol.SUPERVISOR})
+        public void allowedRoles() {
+        }
+
+        @PreAuthorize("hasAnyAuthority('ADMINISTRADOR', 'SUPERVISOR')")
+        public void preAuthorize() {
+        }
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.lp.gestionusuariosroles.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingUserDetailsServiceTest {
+
+    private static final String EMAIL = "ana@example.com";
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final AtomicReference<Runnable> duringLoad = new AtomicReference<>();
+    private final UserDetailsService delegate = username -> {
+        int version = loads.incrementAndGet();
+        Runnable action = duringLoad.getAndSet(null);
+        if (action != null) {
+            action.run();
+        }
+        return User.withUsername(username).password("v" + version).authorities(List.of()).build();
+    };
+    private final CachingUserDetailsService service = new CachingUserDetailsService(
+            delegate, new SimpleMeterRegistry(), 100, Duration.ofMinutes(5)
+    );
+
+    @Test
+    void cachesLoadedUsers() {
+        UserDetails first = service.loadUserByUsername(EMAIL);
+
+        assertSame(first, service.loadUserByUsername(EMAIL));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void evictForcesAReload() {
+        service.loadUserByUsername(EMAIL);
+        service.evict(EMAIL);
+
+        assertEquals("v2", service.loadUserByUsername(EMAIL).getPassword());
+    }
+
+    @Test
+    void aLoadThatOverlapsAnEvictionIsNotCached() {
+        // La carga lee los datos anteriores y la eliminación posterior al commit ocurre antes de que los guarde
+        duringLoad.set(() -> service.evict(EMAIL));
+        assertEquals("v1", service.loadUserByUsername(EMAIL).getPassword());
+
+        assertEquals("v2", service.loadUserByUsername(EMAIL).getPassword());
+        assertEquals("v2", service.loadUserByUsername(EMAIL).getPassword());
+    }
+
+    @Test
+    void aLoadThatOverlapsABulkEvictionIsNotCached() {
+        duringLoad.set(() -> service.evictAll(List.of("otro@example.com", EMAIL)));
+        service.loadUserByUsername(EMAIL);
+
+        assertEquals("v2", service.loadUserByUsername(EMAIL).getPassword());
+    }
+
+}
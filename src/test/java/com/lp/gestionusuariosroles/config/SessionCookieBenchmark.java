@@ -0,0 +1,81 @@
+package com.lp.gestionusuariosroles.config;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo fijo de {@link JwtAuthenticationFilter} por solicitud antes de verificar el JWT: decidir si la ruta
+ * es pública y leer la cookie de sesión.
+ * -
+ * legacy reproduce el filtro anterior (AntPathMatcher sobre cada ruta pública y el recorrido copiado de
+ * cookies); current usa shouldNotFilter (búsqueda en un Set) y {@link SessionCookie#getValue}.
+ * -
+ * Ejecución: mvn test-compile y luego
+ * java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)"
+ * org.openjdk.jmh.Main SessionCookieBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionCookieBenchmark {
+
+    private static final List<String> LEGACY_PUBLIC_PATHS = List.of(
+            "/auth/login", "/auth/login/2fa/verify", "/auth/register", "/auth/forgot-password", "/auth/reset-password"
+    );
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final JwtAuthenticationFilter filter = new JwtAuthenticationFilter(null, null, null);
+
+    // Ruta protegida (recorre todos los patrones) y ruta pública
+    @Param({"/api/v1/users/dashboard", "/auth/reset-password"})
+    public String path;
+
+    private HttpServletRequest request;
+
+    @Setup
+    public void setUp() {
+        MockHttpServletRequest mock = new MockHttpServletRequest("GET", path);
+        mock.setServletPath(path);
+        mock.setCookies(
+                new Cookie("_ga", "GA1.1.123456789.1700000000"),
+                new Cookie("theme", "dark"),
+                new Cookie(SessionCookie.NAME, "eyJhbGciOiJIUzI1NiJ9.e30.signature")
+        );
+        request = mock;
+    }
+
+    @Benchmark
+    public String legacy() {
+        String uri = request.getServletPath();
+        if (LEGACY_PUBLIC_PATHS.stream().anyMatch(pattern -> pathMatcher.match(pattern, uri))) {
+            return null;
+        }
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (cookie.getName().equals(SessionCookie.NAME)) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public String current() {
+        if (filter.shouldNotFilter(request)) {
+            return null;
+        }
+        return SessionCookie.getValue(request);
+    }
+
+}
@@ -0,0 +1,354 @@
+package com.lp.gestionusuariosroles.email.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lp.gestionusuariosroles.email.repository.EmailOutbox;
+import com.lp.gestionusuariosroles.email.repository.EmailOutboxRepository;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Prueba el envío contra un servidor HTTP local (MockWebServer) en lugar de la API de Resend.
+ * El repositorio es un doble en memoria que aplica las mismas condiciones que las consultas nativas
+ * (reclamo por estado y vencimiento, actualizaciones condicionadas a status = SENDING y al mismo intento)
+ */
+class EmailSenderServiceTest {
+
+    private static final Duration INITIAL_BACKOFF = Duration.ofMinutes(1);
+    private static final Duration LEASE = Duration.ofMinutes(15);
+    private static final int MAX_ATTEMPTS = 3;
+
+    private MockWebServer server;
+    private final Map<Long, EmailOutbox> rows = new TreeMap<>();
+    private final EmailOutboxRepository repository = mock(EmailOutboxRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        when(repository.lockPendingBatch(any(), anyInt())).thenAnswer(invocation -> {
+            Instant now = invocation.getArgument(0);
+            int batchSize = invocation.getArgument(1);
+            return rows.values().stream()
+                    .filter(row -> row.getStatus() == EmailOutbox.Status.PENDING || row.getStatus() == EmailOutbox.Status.SENDING)
+                    .filter(row -> !row.getNextAttemptAt().isAfter(now))
+                    .sorted(Comparator.comparing(EmailOutbox::getId))
+                    .limit(batchSize)
+                    .toList();
+        });
+        when(repository.finish(anyLong(), anyInt(), anyString(), any(), any())).thenAnswer(invocation -> {
+            EmailOutbox row = claimed(invocation.getArgument(0), invocation.getArgument(1));
+            if (row == null) {
+                return 0;
+            }
+            row.setStatus(EmailOutbox.Status.valueOf(invocation.getArgument(2)));
+            row.setSentAt(invocation.getArgument(3));
+            row.setLastError(invocation.getArgument(4));
+            row.setHtml(null);
+            return 1;
+        });
+        when(repository.retry(anyLong(), anyInt(), any(), any())).thenAnswer(invocation -> {
+            EmailOutbox row = claimed(invocation.getArgument(0), invocation.getArgument(1));
+            if (row == null) {
+                return 0;
+            }
+            row.setStatus(EmailOutbox.Status.PENDING);
+            row.setNextAttemptAt(invocation.getArgument(2));
+            row.setLastError(invocation.getArgument(3));
+            return 1;
+        });
+        when(repository.release(anyLong(), anyInt(), any())).thenAnswer(invocation -> {
+            EmailOutbox row = claimed(invocation.getArgument(0), invocation.getArgument(1));
+            if (row == null) {
+                return 0;
+            }
+            row.setStatus(EmailOutbox.Status.PENDING);
+            row.setNextAttemptAt(invocation.getArgument(2));
+            row.setAttempts(row.getAttempts() - 1);
+            return 1;
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void successMarksTheEmailSentAndUsesItsIdempotencyKey() throws InterruptedException {
+        EmailOutbox email = pending(1L, null);
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"id\":\"re_1\"}"));
+
+        service(5, Duration.ofMinutes(1)).drainOutbox();
+
+        RecordedRequest request = server.takeRequest(1, TimeUnit.SECONDS);
+        assertNotNull(request);
+        assertEquals("/emails", request.getPath());
+        assertEquals("email-outbox-1", request.getHeader("Idempotency-Key"));
+        assertEquals("Bearer clave-de-prueba", request.getHeader("Authorization"));
+        assertTrue(request.getBody().readUtf8().contains("\"subject\":\"Asunto 1\""));
+
+        assertEquals(EmailOutbox.Status.SENT, email.getStatus());
+        assertEquals(1, email.getAttempts());
+        assertNotNull(email.getSentAt());
+        assertNull(email.getHtml());
+    }
+
+    @Test
+    void clientErrorIsAPermanentFailure() {
+        EmailOutbox email = pending(1L, null);
+        server.enqueue(new MockResponse().setResponseCode(422).setBody("{\"message\":\"invalid to\"}"));
+
+        service(5, Duration.ofMinutes(1)).drainOutbox();
+
+        assertEquals(EmailOutbox.Status.FAILED, email.getStatus());
+        assertEquals(1, email.getAttempts());
+        assertTrue(email.getLastError().contains("422"));
+        assertNull(email.getHtml());
+    }
+
+    @Test
+    void serverErrorsAndConflictsAreRetriedWithBackoff() {
+        EmailOutbox first = pending(1L, null);
+        EmailOutbox second = pending(2L, null);
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(409));
+        Instant before = Instant.now();
+
+        service(5, Duration.ofMinutes(1)).drainOutbox();
+
+        for (EmailOutbox email : new EmailOutbox[]{first, second}) {
+            assertEquals(EmailOutbox.Status.PENDING, email.getStatus());
+            assertEquals(1, email.getAttempts());
+            assertBetween(before.plus(INITIAL_BACKOFF), Instant.now().plus(INITIAL_BACKOFF), email.getNextAttemptAt());
+            assertNotNull(email.getHtml());
+        }
+        assertTrue(first.getLastError().contains("503"));
+        assertTrue(second.getLastError().contains("409"));
+    }
+
+    @Test
+    void transientFailureOnTheLastAttemptFailsTheEmail() {
+        EmailOutbox email = pending(1L, null);
+        email.setAttempts(MAX_ATTEMPTS - 1);
+        server.enqueue(new MockResponse().setResponseCode(500));
+
+        service(5, Duration.ofMinutes(1)).drainOutbox();
+
+        assertEquals(EmailOutbox.Status.FAILED, email.getStatus());
+        assertEquals(MAX_ATTEMPTS, email.getAttempts());
+    }
+
+    @Test
+    void emailWithoutAttemptsLeftIsFailedWithoutSending() {
+        EmailOutbox email = pending(1L, null);
+        email.setAttempts(MAX_ATTEMPTS);
+
+        service(5, Duration.ofMinutes(1)).drainOutbox();
+
+        assertEquals(EmailOutbox.Status.FAILED, email.getStatus());
+        assertEquals(0, server.getRequestCount());
+    }
+
+    @Test
+    void rateLimitDefersTheRestOfTheBatchWithoutConsumingAttempts() {
+        EmailOutbox first = pending(1L, null);
+        EmailOutbox second = pending(2L, null);
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "120"));
+        Instant before = Instant.now();
+
+        service(1, Duration.ofMinutes(1)).drainOutbox();
+
+        assertEquals(1, server.getRequestCount());
+        for (EmailOutbox email : new EmailOutbox[]{first, second}) {
+            assertEquals(EmailOutbox.Status.PENDING, email.getStatus());
+            assertEquals(0, email.getAttempts());
+            assertBetween(before.plusSeconds(120), Instant.now().plusSeconds(120), email.getNextAttemptAt());
+        }
+    }
+
+    @Test
+    void expiredEmailsAreNotSent() {
+        EmailOutbox email = pending(1L, Instant.now().minusSeconds(1));
+
+        service(5, Duration.ofMinutes(1)).drainOutbox();
+
+        assertEquals(EmailOutbox.Status.EXPIRED, email.getStatus());
+        assertEquals(0, email.getAttempts());
+        assertNull(email.getHtml());
+        assertEquals(0, server.getRequestCount());
+    }
+
+    @Test
+    void transientFailureWhoseRetryWouldBeTooLateExpiresTheEmail() {
+        EmailOutbox email = pending(1L, Instant.now().plusSeconds(30));
+        server.enqueue(new MockResponse().setResponseCode(502));
+
+        service(5, Duration.ofMinutes(1)).drainOutbox();
+
+        assertEquals(EmailOutbox.Status.EXPIRED, email.getStatus());
+        assertEquals(1, email.getAttempts());
+        assertTrue(email.getLastError().contains("502"));
+    }
+
+    @Test
+    void circuitOpensAfterConsecutiveFailuresAndHalfOpensAfterTheOpenDuration() throws InterruptedException {
+        EmailSenderService service = service(2, Duration.ofMillis(300));
+        EmailOutbox first = pending(1L, null);
+        EmailOutbox second = pending(2L, null);
+        EmailOutbox third = pending(3L, null);
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setResponseCode(500));
+
+        service.drainOutbox();
+
+        // Los dos fallos abren el circuito: el tercero vuelve a pendiente sin enviarse ni consumir el intento
+        assertEquals(2, server.getRequestCount());
+        assertEquals(1, first.getAttempts());
+        assertEquals(1, second.getAttempts());
+        assertEquals(EmailOutbox.Status.PENDING, third.getStatus());
+        assertEquals(0, third.getAttempts());
+
+        // Mientras está abierto no se reclama nada
+        service.drainOutbox();
+        assertEquals(2, server.getRequestCount());
+        assertEquals(0, third.getAttempts());
+
+        // Semiabierto: un solo intento; si falla, el circuito se vuelve a abrir de inmediato
+        Thread.sleep(400);
+        server.enqueue(new MockResponse().setResponseCode(500));
+        EmailOutbox fourth = pending(4L, null);
+        service.drainOutbox();
+        assertEquals(3, server.getRequestCount());
+        assertEquals(1, third.getAttempts());
+        assertEquals(EmailOutbox.Status.PENDING, fourth.getStatus());
+        assertEquals(0, fourth.getAttempts());
+
+        // Un envío exitoso después de la apertura cierra el circuito
+        Thread.sleep(400);
+        server.enqueue(new MockResponse().setResponseCode(200));
+        server.enqueue(new MockResponse().setResponseCode(200));
+        EmailOutbox fifth = pending(5L, null);
+        service.drainOutbox();
+        assertEquals(EmailOutbox.Status.SENT, fourth.getStatus());
+        assertEquals(EmailOutbox.Status.SENT, fifth.getStatus());
+        assertEquals(5, server.getRequestCount());
+    }
+
+    @Test
+    void resultIsDiscardedWhenTheLeaseWasReclaimedDuringTheSend() {
+        EmailOutbox email = pending(1L, null);
+        Instant reclaimedLease = Instant.now().plus(LEASE).plusSeconds(60);
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                // Otra instancia reclamó el correo al vencer la reserva (siguiente intento)
+                email.setAttempts(email.getAttempts() + 1);
+                email.setNextAttemptAt(reclaimedLease);
+                return new MockResponse().setResponseCode(200);
+            }
+        });
+
+        service(5, Duration.ofMinutes(1)).drainOutbox();
+
+        assertEquals(EmailOutbox.Status.SENDING, email.getStatus());
+        assertEquals(2, email.getAttempts());
+        assertEquals(reclaimedLease, email.getNextAttemptAt());
+        assertNotNull(email.getHtml());
+    }
+
+    @Test
+    void releaseDoesNotTouchAReclaimedLease() {
+        EmailOutbox email = pending(1L, null);
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                email.setAttempts(email.getAttempts() + 1);
+                return new MockResponse().setResponseCode(429).setHeader("Retry-After", "5");
+            }
+        });
+
+        service(5, Duration.ofMinutes(1)).drainOutbox();
+
+        assertEquals(EmailOutbox.Status.SENDING, email.getStatus());
+        assertEquals(2, email.getAttempts());
+    }
+
+    @Test
+    void claimLeasesTheEmailUntilTheResultIsRecorded() {
+        EmailOutbox email = pending(1L, null);
+        Instant before = Instant.now();
+        Instant[] leaseDuringSend = new Instant[1];
+        EmailOutbox.Status[] statusDuringSend = new EmailOutbox.Status[1];
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                leaseDuringSend[0] = email.getNextAttemptAt();
+                statusDuringSend[0] = email.getStatus();
+                return new MockResponse().setResponseCode(200);
+            }
+        });
+
+        service(5, Duration.ofMinutes(1)).drainOutbox();
+
+        assertEquals(EmailOutbox.Status.SENDING, statusDuringSend[0]);
+        assertBetween(before.plus(LEASE), Instant.now().plus(LEASE), leaseDuringSend[0]);
+        assertEquals(EmailOutbox.Status.SENT, email.getStatus());
+    }
+
+    private EmailSenderService service(int circuitFailureThreshold, Duration circuitOpenDuration) {
+        String url = server.url("/").toString();
+        return new EmailSenderService(
+                repository, new ObjectMapper(), transactionManager,
+                url.substring(0, url.length() - 1), "clave-de-prueba", "no-reply@example.com",
+                10, MAX_ATTEMPTS, INITIAL_BACKOFF, Duration.ofMinutes(30), LEASE,
+                circuitFailureThreshold, circuitOpenDuration, Duration.ofSeconds(5)
+        );
+    }
+
+    private EmailOutbox pending(Long id, Instant expiresAt) {
+        EmailOutbox email = EmailOutbox.builder()
+                .id(id)
+                .toEmail("usuario" + id + "@example.com")
+                .subject("Asunto " + id)
+                .html("<p>Correo " + id + "</p>")
+                .nextAttemptAt(Instant.now().minusSeconds(1))
+                .expiresAt(expiresAt)
+                .build();
+        rows.put(id, email);
+        return email;
+    }
+
+    private EmailOutbox claimed(Long id, int attempts) {
+        EmailOutbox row = rows.get(id);
+        return row != null && row.getStatus() == EmailOutbox.Status.SENDING && row.getAttempts() == attempts ? row : null;
+    }
+
+    private static void assertBetween(Instant from, Instant to, Instant actual) {
+        assertFalse(actual.isBefore(from), actual + " < " + from);
+        assertFalse(actual.isAfter(to), actual + " > " + to);
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.lp.gestionusuariosroles.user.service;
+
+import com.lp.gestionusuariosroles.user.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserCountersTest {
+
+    private final UserRepository repository = mock(UserRepository.class);
+    private final UserCounters counters = new UserCounters(repository);
+    // Cantidad de egresados activos "en la Base de Datos"
+    private final AtomicLong stored = new AtomicLong(10);
+    private final ExecutorService transactionThread = Executors.newSingleThreadExecutor();
+    private final ExecutorService reconcileThread = Executors.newSingleThreadExecutor();
+
+    @BeforeEach
+    void setUp() {
+        when(repository.countUsersByRolAndEstado()).thenAnswer(invocation -> rows(stored.get()));
+        counters.reconcile();
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionThread.shutdownNow();
+        reconcileThread.shutdownNow();
+    }
+
+    @Test
+    void appliesChangesOnlyAfterCommit() throws Exception {
+        run(() -> {
+            TransactionSynchronizationManager.initSynchronization();
+            counters.created("EGRESADO", true);
+            counters.changed("EGRESADO", true, "EGRESADO", false);
+        });
+        assertEquals(10, counters.countByEstado(true));
+
+        run(() -> complete(TransactionSynchronization.STATUS_ROLLED_BACK));
+        assertEquals(10, counters.countByEstado(true));
+        assertEquals(0, counters.countByEstado(false));
+
+        run(() -> {
+            TransactionSynchronizationManager.initSynchronization();
+            counters.created("EGRESADO", true);
+            counters.changed("EGRESADO", true, "EGRESADO", false);
+        });
+        run(this::commit);
+        assertEquals(10, counters.countByEstado(true));
+        assertEquals(1, counters.countByEstado(false));
+        assertEquals(Map.of("EGRESADO", 11L), counters.countByRol());
+    }
+
+    @Test
+    void commitDuringTheReconcileQueryIsNotLost() throws Exception {
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch releaseQuery = new CountDownLatch(1);
+        when(repository.countUsersByRolAndEstado()).thenAnswer(invocation -> {
+            List<Object[]> snapshot = rows(stored.get());
+            queryStarted.countDown();
+            releaseQuery.await();
+            return snapshot;
+        });
+        run(() -> {
+            TransactionSynchronizationManager.initSynchronization();
+            counters.created("EGRESADO", true);
+        });
+
+        Future<?> reconcile = reconcileThread.submit(counters::reconcile);
+        assertTrue(queryStarted.await(5, TimeUnit.SECONDS));
+        // El commit espera a que termine la reconciliación, que ya leyó 10
+        Future<?> beforeCommit = transactionThread.submit(() -> TransactionSynchronizationUtils.triggerBeforeCommit(false));
+        assertThrows(TimeoutException.class, () -> beforeCommit.get(100, TimeUnit.MILLISECONDS));
+
+        releaseQuery.countDown();
+        reconcile.get(5, TimeUnit.SECONDS);
+        beforeCommit.get(5, TimeUnit.SECONDS);
+        run(() -> {
+            stored.incrementAndGet();
+            complete(TransactionSynchronization.STATUS_COMMITTED);
+        });
+
+        assertEquals(11, counters.countByEstado(true));
+    }
+
+    @Test
+    void commitSeenByTheReconcileQueryIsNotCountedTwice() throws Exception {
+        run(() -> {
+            TransactionSynchronizationManager.initSynchronization();
+            counters.created("EGRESADO", true);
+            TransactionSynchronizationUtils.triggerBeforeCommit(false);
+            // El commit ya es visible, pero el cambio en memoria todavía no se aplicó
+            stored.incrementAndGet();
+        });
+
+        Future<?> reconcile = reconcileThread.submit(counters::reconcile);
+        assertThrows(TimeoutException.class, () -> reconcile.get(100, TimeUnit.MILLISECONDS));
+
+        run(() -> complete(TransactionSynchronization.STATUS_COMMITTED));
+        reconcile.get(5, TimeUnit.SECONDS);
+
+        assertEquals(11, counters.countByEstado(true));
+    }
+
+    private void commit() {
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+        }
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, status);
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private void run(Runnable step) throws Exception {
+        transactionThread.submit(step).get(5, TimeUnit.SECONDS);
+    }
+
+    private static List<Object[]> rows(long egresadosActivos) {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{"EGRESADO", true, egresadosActivos});
+        return rows;
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.lp.gestionusuariosroles.user.service;
+
+import com.lp.gestionusuariosroles.user.controller.UserListSort;
+import com.lp.gestionusuariosroles.user.repository.UserSummaryView;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserCursorTest {
+
+    @Test
+    void roundTripsTheKeyAndId() {
+        UserCursor cursor = new UserCursor(UserListSort.APELLIDOS, "Núñez del Prado", 42L);
+
+        assertEquals(cursor, UserCursor.decode(cursor.encode(), UserListSort.APELLIDOS));
+    }
+
+    @Test
+    void keyMayContainTheSeparator() {
+        UserCursor cursor = new UserCursor(UserListSort.APELLIDOS, "a|b||c", 7L);
+
+        assertEquals(cursor, UserCursor.decode(cursor.encode(), UserListSort.APELLIDOS));
+    }
+
+    @Test
+    void encodedCursorIsUrlSafeWithoutPadding() {
+        String encoded = new UserCursor(UserListSort.APELLIDOS, "ÿÿÿ??>>", Long.MAX_VALUE).encode();
+
+        assertTrue(encoded.matches("[A-Za-z0-9_-]+"), encoded);
+    }
+
+    @Test
+    void afterUsesTheSortKeyOfTheRow() {
+        UserSummaryView user = mock(UserSummaryView.class);
+        when(user.getId()).thenReturn(9L);
+        when(user.getApellidos()).thenReturn("Quispe");
+
+        assertEquals(new UserCursor(UserListSort.APELLIDOS, "Quispe", 9L), UserCursor.after(UserListSort.APELLIDOS, user));
+        assertEquals(new UserCursor(UserListSort.ID, "", 9L), UserCursor.after(UserListSort.ID, user));
+        assertEquals(new UserCursor(UserListSort.ID, "", 0L), UserCursor.start(UserListSort.ID));
+    }
+
+    @Test
+    void rejectsACursorGeneratedForAnotherSort() {
+        String encoded = new UserCursor(UserListSort.ID, "", 5L).encode();
+
+        assertThrows(IllegalArgumentException.class, () -> UserCursor.decode(encoded, UserListSort.APELLIDOS));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "no base64!", "ID", "ID|5", "ID|cinco|", "APELLIDO|5|x", "ID||"})
+    void rejectsMalformedCursors(String raw) {
+        String encoded = raw.equals("no base64!")
+                ? raw
+                : Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> UserCursor.decode(encoded, UserListSort.ID));
+        assertEquals("El cursor es inválido", e.getMessage());
+    }
+
+}
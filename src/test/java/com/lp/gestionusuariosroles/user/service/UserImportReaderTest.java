@@ -0,0 +1,134 @@
+package com.lp.gestionusuariosroles.user.service;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserImportReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readsCommaSeparatedRowsWithTheirNumbers() throws IOException {
+        List<Row> rows = readCsv("nombres,apellidos,dni\nAna,Pérez,01234567\nLuis,Soto,87654321\n");
+
+        assertEquals(List.of(
+                new Row(1, List.of("nombres", "apellidos", "dni")),
+                new Row(2, List.of("Ana", "Pérez", "01234567")),
+                new Row(3, List.of("Luis", "Soto", "87654321"))
+        ), rows);
+    }
+
+    @Test
+    void detectsSemicolonSeparatorFromTheHeader() throws IOException {
+        List<Row> rows = readCsv("nombres;apellidos;email\nAna;Pérez, García;ana@example.com");
+
+        assertEquals(List.of("Ana", "Pérez, García", "ana@example.com"), rows.get(1).cells());
+    }
+
+    @Test
+    void handlesQuotedValuesEscapedQuotesAndLineBreaks() throws IOException {
+        List<Row> rows = readCsv("a,b,c\n\"uno, dos\",\"dice \"\"hola\"\"\",\"línea 1\nlínea 2\"\nx,y,z\n");
+
+        assertEquals(List.of("uno, dos", "dice \"hola\"", "línea 1\nlínea 2"), rows.get(1).cells());
+        assertEquals(new Row(3, List.of("x", "y", "z")), rows.get(2));
+    }
+
+    @Test
+    void skipsByteOrderMarkAndCarriageReturnsAndTrimsValues() throws IOException {
+        List<Row> rows = readCsv("﻿nombres,dni\r\n  Ana  , 01234567 \r\n");
+
+        assertEquals(List.of("nombres", "dni"), rows.get(0).cells());
+        assertEquals(List.of("Ana", "01234567"), rows.get(1).cells());
+        assertEquals(2, rows.size());
+    }
+
+    @Test
+    void keepsEmptyCellsAndReadsTheLastRowWithoutLineBreak() throws IOException {
+        List<Row> rows = readCsv("a,b,c\n,,\nx,,z");
+
+        assertEquals(List.of("", "", ""), rows.get(1).cells());
+        assertEquals(List.of("x", "", "z"), rows.get(2).cells());
+    }
+
+    @Test
+    void headerOnlyAndEmptyFiles() throws IOException {
+        assertEquals(List.of(new Row(1, List.of("a", "b"))), readCsv("a,b"));
+        assertEquals(List.of(), readCsv(""));
+    }
+
+    @Test
+    void readsXlsxFormattedValuesFromAFile() throws IOException {
+        File file = tempDir.resolve("usuarios.xlsx").toFile();
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream output = Files.newOutputStream(file.toPath())) {
+            CellStyle dniStyle = workbook.createCellStyle();
+            dniStyle.setDataFormat(workbook.createDataFormat().getFormat("00000000"));
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat((short) 14);
+
+            Sheet sheet = workbook.createSheet();
+            org.apache.poi.ss.usermodel.Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("nombres");
+            header.createCell(1).setCellValue("dni");
+            header.createCell(2).setCellValue("fechaNacimiento");
+            header.createCell(3).setCellValue("telefono");
+
+            org.apache.poi.ss.usermodel.Row row = sheet.createRow(1);
+            row.createCell(0).setCellValue("  Ana ");
+            row.createCell(1).setCellValue(1234567);
+            row.getCell(1).setCellStyle(dniStyle);
+            row.createCell(2).setCellValue(LocalDate.of(1990, 5, 17));
+            row.getCell(2).setCellStyle(dateStyle);
+            row.createCell(3).setCellValue(987654321);
+
+            // Fila 4 con una celda vacía antes del valor
+            sheet.createRow(3).createCell(1).setCellValue("87654321");
+            workbook.write(output);
+        }
+
+        List<Row> rows = new ArrayList<>();
+        UserImportReader.readXlsx(file, (rowNumber, cells) -> rows.add(new Row(rowNumber, cells)));
+
+        assertEquals(List.of("nombres", "dni", "fechaNacimiento", "telefono"), rows.get(0).cells());
+        assertEquals(new Row(2, List.of("Ana", "01234567", "1990-05-17", "987654321")), rows.get(1));
+        assertEquals(new Row(4, List.of("", "87654321")), rows.get(2));
+    }
+
+    @Test
+    void rejectsFilesThatAreNotXlsx() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("falso.xlsx"), "nombres,dni\nAna,01234567\n");
+
+        assertThrows(IOException.class, () -> UserImportReader.readXlsx(file.toFile(), (rowNumber, cells) -> {
+        }));
+    }
+
+    private static List<Row> readCsv(String content) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        UserImportReader.readCsv(
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)),
+                (rowNumber, cells) -> rows.add(new Row(rowNumber, cells))
+        );
+        return rows;
+    }
+
+    private record Row(int number, List<String> cells) {
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.lp.gestionusuariosroles.user.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserSearchIndexPostingsTest {
+
+    @Test
+    void addAndRemoveKeepSlotsWhileSorted() {
+        UserSearchIndex.Postings postings = new UserSearchIndex.Postings();
+        postings.add(7);
+        postings.add(3);
+        postings.add(5);
+        postings.add(3);
+
+        postings.remove(5);
+        postings.remove(42);
+
+        assertTrue(postings.contains(3));
+        assertTrue(postings.contains(7));
+        assertFalse(postings.contains(5));
+        assertEquals(bits(3, 7), collect(postings));
+
+        postings.remove(3);
+        postings.remove(7);
+        assertTrue(postings.isEmpty());
+    }
+
+    @Test
+    void switchesToBitSetPastTheSortedLimitWithoutLosingSlots() {
+        UserSearchIndex.Postings postings = new UserSearchIndex.Postings();
+        for (int slot = UserSearchIndex.Postings.MAX_SORTED; slot >= 0; slot--) {
+            postings.add(slot * 2);
+        }
+
+        BitSet result = collect(postings);
+        assertEquals(UserSearchIndex.Postings.MAX_SORTED + 1, result.cardinality());
+        assertTrue(postings.contains(0));
+        assertFalse(postings.contains(1));
+
+        for (int slot = 0; slot <= UserSearchIndex.Postings.MAX_SORTED; slot++) {
+            postings.remove(slot * 2);
+        }
+        assertTrue(postings.isEmpty());
+    }
+
+    @Test
+    void matchesAReferenceSetUnderRandomOperations() {
+        Random random = new Random(19);
+        UserSearchIndex.Postings postings = new UserSearchIndex.Postings();
+        TreeSet<Integer> expected = new TreeSet<>();
+
+        for (int i = 0; i < 50_000; i++) {
+            int slot = random.nextInt(10_000);
+            if (random.nextInt(3) == 0) {
+                postings.remove(slot);
+                expected.remove(slot);
+            } else {
+                postings.add(slot);
+                expected.add(slot);
+            }
+        }
+
+        BitSet reference = new BitSet();
+        expected.forEach(reference::set);
+        assertEquals(reference, collect(postings));
+        assertEquals(expected.isEmpty(), postings.isEmpty());
+    }
+
+    private static BitSet collect(UserSearchIndex.Postings postings) {
+        BitSet result = new BitSet();
+        postings.addTo(result);
+        return result;
+    }
+
+    private static BitSet bits(int... slots) {
+        BitSet result = new BitSet();
+        for (int slot : slots) {
+            result.set(slot);
+        }
+        return result;
+    }
+
+}
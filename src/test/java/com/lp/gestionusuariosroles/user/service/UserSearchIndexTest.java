@@ -0,0 +1,87 @@
+package com.lp.gestionusuariosroles.user.service;
+
+import com.lp.gestionusuariosroles.user.controller.UserSearchResponse;
+import com.lp.gestionusuariosroles.user.controller.UserSummaryResponse;
+import com.lp.gestionusuariosroles.user.repository.Rol;
+import com.lp.gestionusuariosroles.user.repository.User;
+import com.lp.gestionusuariosroles.user.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserSearchIndexTest {
+
+    private UserSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        UserRepository repository = mock(UserRepository.class);
+        when(repository.streamAllForSearch()).thenReturn(Stream.empty());
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        index = new UserSearchIndex(repository, transactionManager, Duration.ofSeconds(30), Duration.ofMinutes(15));
+        index.build();
+        index.upsert(user(1L, "José", "Pérez", "jose.perez@correo.pe", "01234567"));
+        index.upsert(user(2L, "Josefina", "Li", "josefina.li@empresa.com", "87654321"));
+        index.upsert(user(3L, "Ana", "Peralta", "ana.peralta@correo.pe", "11223344"));
+    }
+
+    @Test
+    void findsUsersByPrefixWithoutAccents() {
+        assertEquals(List.of(1L, 2L), ids(index.search("jos", null, null, 10)));
+        assertEquals(List.of(1L), ids(index.search("Jose PER", null, null, 10)));
+        assertEquals(List.of(3L), ids(index.search("1122", null, null, 10)));
+    }
+
+    @Test
+    void rejectsQueriesWithoutATermOfTheMinimumLength() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> index.search("j", null, null, 10));
+        assertTrue(e.getMessage().contains(String.valueOf(UserSearchIndex.MIN_TERM_LENGTH)));
+        assertThrows(IllegalArgumentException.class, () -> index.search("li p", null, null, 10));
+        assertThrows(IllegalArgumentException.class, () -> index.search("  ", null, null, 10));
+    }
+
+    @Test
+    void shortTermsFilterTheIndexedMatches() {
+        assertEquals(List.of(2L), ids(index.search("josefina li", null, null, 10)));
+        assertEquals(List.of(1L), ids(index.search("jose.perez@correo.pe", null, null, 10)));
+        assertEquals(List.of(), ids(index.search("jose xy", null, null, 10)));
+    }
+
+    @Test
+    void totalCountsAllMatchesBeyondTheLimit() {
+        UserSearchResponse response = index.search("correo", null, null, 1);
+
+        assertEquals(1, response.content().size());
+        assertEquals(2, response.totalMatches());
+    }
+
+    private static List<Long> ids(UserSearchResponse response) {
+        return response.content().stream().map(UserSummaryResponse.UserSummary::id).toList();
+    }
+
+    private static User user(Long id, String nombres, String apellidos, String email, String dni) {
+        return User.builder()
+                .id(id)
+                .nombres(nombres)
+                .apellidos(apellidos)
+                .email(email)
+                .dni(dni)
+                .rol(Rol.EGRESADO.name())
+                .estado(true)
+                .build();
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.lp.gestionusuariosroles.user.service;
+
+import com.lp.gestionusuariosroles.user.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class UserUniquenessFilterTest {
+
+    private final UserRepository repository = mock(UserRepository.class);
+    private final UserUniquenessFilter filter = new UserUniquenessFilter(
+            repository, mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), 0.01
+    );
+
+    @BeforeEach
+    void setUp() {
+        when(repository.existsByEmail(anyString())).thenReturn(true);
+        when(repository.existsByDni(anyString())).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void goesToTheDatabaseUntilBuilt() {
+        assertTrue(filter.emailExists("ana@example.com"));
+        verify(repository).existsByEmail("ana@example.com");
+    }
+
+    @Test
+    void skipsTheDatabaseForValuesNotInTheTable() {
+        rebuildWith(new Object[]{"ana@example.com", "12345678"});
+
+        assertFalse(filter.emailExists("nuevo@example.com"));
+        assertFalse(filter.dniExists("87654321"));
+        assertTrue(filter.emailExists("ana@example.com"));
+        assertTrue(filter.dniExists("12345678"));
+        verify(repository, never()).existsByEmail("nuevo@example.com");
+    }
+
+    @Test
+    void keepsValuesSavedAfterTheLastBuild() {
+        rebuildWith();
+        filter.add("nuevo@example.com", "87654321");
+
+        assertTrue(filter.emailExists("nuevo@example.com"));
+        assertTrue(filter.dniExists("87654321"));
+    }
+
+    @Test
+    void keepsAValueWhoseTransactionIsStillOpenDuringTheRebuild() {
+        rebuildWith();
+        TransactionSynchronizationManager.initSynchronization();
+        filter.add("nuevo@example.com", "87654321");
+
+        // La tabla todavía no tiene el valor: su transacción no confirmó
+        rebuildWith();
+
+        assertTrue(filter.emailExists("nuevo@example.com"));
+        assertTrue(filter.dniExists("87654321"));
+    }
+
+    @Test
+    void keepsAValueCommittedWhileTheTableIsBeingRead() {
+        rebuildWith();
+        TransactionSynchronizationManager.initSynchronization();
+        filter.add("nuevo@example.com", "87654321");
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        // El commit ocurre mientras la reconstrucción recorre una tabla leída antes del commit
+        when(repository.count()).thenReturn(0L);
+        when(repository.streamEmailsAndDnis()).thenAnswer(invocation -> {
+            synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+            return Stream.empty();
+        });
+        filter.rebuild();
+
+        assertTrue(filter.emailExists("nuevo@example.com"));
+        assertTrue(filter.dniExists("87654321"));
+    }
+
+    @Test
+    void existingReturnsOnlyConfirmedValues() {
+        rebuildWith(new Object[]{"ana@example.com", "12345678"});
+        when(repository.findExistingEmails(List.of("ana@example.com"))).thenReturn(List.of("ana@example.com"));
+
+        assertEquals(
+                Set.of("ana@example.com"),
+                filter.existingEmails(List.of("ana@example.com", "nuevo@example.com"))
+        );
+    }
+
+    private void rebuildWith(Object[]... rows) {
+        when(repository.count()).thenReturn((long) rows.length);
+        when(repository.streamEmailsAndDnis()).thenReturn(Stream.of(rows));
+        filter.rebuild();
+    }
+
+}
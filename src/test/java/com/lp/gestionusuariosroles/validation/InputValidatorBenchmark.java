@@ -0,0 +1,54 @@
+package com.lp.gestionusuariosroles.validation;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de validar email y contraseña: recorridos de {@link InputValidator} frente a String.matches,
+ * que compilaba la expresión regular en cada llamada.
+ * -
+ * Ejecución: mvn test-compile y luego
+ * java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)"
+ * org.openjdk.jmh.Main InputValidatorBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputValidatorBenchmark {
+
+    private static final String EMAIL_REGEX = "^[\\w-.]+@([\\w-]+\\.)+[\\w-]{2,4}$";
+    private static final String PASSWORD_REGEX = "^(?=.*[0-9])(?=.*[a-z])(?=.*[A-Z])(?=.*[@#$%^&+=])(?=\\S+$).{8,}$";
+
+    private final InputValidator validator = new InputValidator();
+
+    @Param({"maria.fernandez_92@correo.empresa.pe", "sin-arroba.correo.pe"})
+    public String email;
+
+    @Param({"Segura#2024xyz"})
+    public String password;
+
+    @Benchmark
+    public boolean emailScanner() {
+        return validator.isValidEmail(email);
+    }
+
+    @Benchmark
+    public boolean emailStringMatches() {
+        return email.matches(EMAIL_REGEX);
+    }
+
+    @Benchmark
+    public boolean passwordScanner() {
+        return validator.isStrongPassword(password);
+    }
+
+    @Benchmark
+    public boolean passwordStringMatches() {
+        return password.matches(PASSWORD_REGEX);
+    }
+
+}
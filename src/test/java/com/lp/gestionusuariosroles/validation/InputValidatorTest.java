@@ -0,0 +1,113 @@
+package com.lp.gestionusuariosroles.validation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Los validadores deben aceptar exactamente lo mismo que las expresiones regulares documentadas en
+ * {@link InputValidator}: se comparan en casos límite y en entradas aleatorias con semilla fija
+ */
+class InputValidatorTest {
+
+    private static final Pattern EMAIL = Pattern.compile("^[\\w-.]+@([\\w-]+\\.)+[\\w-]{2,4}$");
+    private static final Pattern PASSWORD =
+            Pattern.compile("^(?=.*[0-9])(?=.*[a-z])(?=.*[A-Z])(?=.*[@#$%^&+=])(?=\\S+$).{8,}$");
+    private static final Pattern TELEFONO = Pattern.compile("\\d{9}");
+    private static final Pattern DNI = Pattern.compile("\\d{8}");
+
+    // Caracteres de las reglas, sus vecinos y los casos especiales (espacios, terminadores de línea, no ASCII)
+    private static final String[] ALPHABET = {
+            "a", "z", "A", "Z", "0", "9", "_", "-", ".", "@", "#", "$", "%", "^", "&", "+", "=", "!", "*", "/",
+            " ", "\t", "\n", "\r", "\u000B", "\f", "\u0085", "\u2028", "\u2029", "\u00A0",
+            "ñ", "é", "Ü", "٣", "😀"
+    };
+
+    private final InputValidator validator = new InputValidator();
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "", "@", "a@", "@b.co", "a@b", "a@b.", "a@.co", "a@b..co", "a@b.c", "a@b.co", "a@b.coop", "a@b.coops",
+            "a.b-c_d@e-f.g_h.io", "-@-.--", "..@a.bc", "a@@b.co", "a b@c.de", "ñ@b.co", "a@ñ.co", "a@b.çom",
+            "user@sub.domain.example.com", "a@b.co\n", "a@b-.c0"
+    })
+    void emailMatchesTheRegex(String email) {
+        assertEquals(EMAIL.matcher(email).matches(), validator.isValidEmail(email), email);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "", "Aa1@", "Aa1@aaa", "Aa1@aaaa", "aa1@aaaa", "AA1@AAAA", "Aaa@aaaa", "Aa1aaaaa",
+            "Aa1@ aaaa", "Aa1@\taaa", "Aa1@aaa\n", "Aa1@aaa\u0085", "Aa1@aaa\u2028", "Aa1@aaa\u00A0",
+            "Aa1#ñññ", "Aa1#ññññ", "Aa1=😀😀", "Aa1=😀😀😀😀",
+            "Aa1@Aa1@Aa1@Aa1@Aa1@Aa1@Aa1@Aa1@Aa1@Aa1@Aa1@Aa1@Aa1@Aa1@Aa1@Aa1@Aa1@Aa1@Aa1@Aa1@",
+            "Aa1#", "Aa1$bbbb", "Aa1%bbbb", "Aa1^bbbb", "Aa1&bbbb", "Aa1+bbbb", "Aa1=bbbb", "Aa1!bbbb", "Aa٣@bbbb"
+    })
+    void passwordMatchesTheRegex(String password) {
+        assertEquals(PASSWORD.matcher(password).matches(), validator.isStrongPassword(password), password);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "", "1234567", "12345678", "123456789", "1234567890", "1234567a", "1234 678", "١٢٣٤٥٦٧٨", "-1234567", "+12345678"
+    })
+    void digitsMatchTheRegex(String value) {
+        assertEquals(TELEFONO.matcher(value).matches(), validator.isValidTelefono(value), value);
+        assertEquals(DNI.matcher(value).matches(), validator.isValidDni(value), value);
+    }
+
+    @Test
+    void nullIsNeverValid() {
+        assertFalse(validator.isValidEmail(null));
+        assertFalse(validator.isStrongPassword(null));
+        assertFalse(validator.isValidTelefono(null));
+        assertFalse(validator.isValidDni(null));
+    }
+
+    @Test
+    void randomInputsMatchTheRegexes() {
+        Random random = new Random(13);
+        for (int i = 0; i < 200_000; i++) {
+            String value = randomString(random);
+            assertSame(EMAIL, value, validator::isValidEmail);
+            assertSame(PASSWORD, value, validator::isStrongPassword);
+            assertSame(TELEFONO, value, validator::isValidTelefono);
+            assertSame(DNI, value, validator::isValidDni);
+        }
+    }
+
+    @Test
+    void randomEmailShapedInputsMatchTheRegex() {
+        Random random = new Random(31);
+        for (int i = 0; i < 200_000; i++) {
+            String value = randomString(random) + "@" + randomString(random) + "." + randomString(random);
+            assertSame(EMAIL, value, validator::isValidEmail);
+        }
+    }
+
+    private static void assertSame(Pattern pattern, String value, Predicate<String> validator) {
+        assertEquals(pattern.matcher(value).matches(), validator.test(value), () -> pattern + " con " + escape(value));
+    }
+
+    private static String randomString(Random random) {
+        int length = random.nextInt(13);
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+        }
+        return builder.toString();
+    }
+
+    private static String escape(String value) {
+        StringBuilder builder = new StringBuilder();
+        value.codePoints().forEach(c -> builder.append(c >= 0x20 && c < 0x7F ? Character.toString(c) : String.format("\\u%04X", c)));
+        return builder.toString();
+    }
+
+}